@@ -0,0 +1,208 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>Microbenchmarks for the parts package</h1>
+ *
+ * Times the hot paths of Board and the pieces on fixed opening, middlegame and endgame positions.
+ * Every benchmark is warmed up before it is measured, and its results are folded into a sink
+ * so the JIT can't throw the work away.
+ *
+ * Usage: java bench.Microbench [filter] [warmup iterations] [measured iterations] [ms per iteration]
+ *
+ * filter is a substring of the benchmark names, like "threatened" or "endgame".
+ *
+ * This is the quick check, numbers meant to be compared between machines or commits come from the JMH versions in
+ * bench.jmh, run with "gradle :bench:jmh".
+ *
+ * */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.Move;
+import parts.MoveGenerator;
+import parts.Piece;
+import parts.Position;
+
+public class Microbench {
+
+	public static final String OPENING = "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3";
+	public static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+	public static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+	//a benchmark is one operation that returns something, so that it can't be optimized away
+	public interface Op {
+		long run();
+	}
+
+	private static class Benchmark {
+		final String name;
+		final Op op;
+
+		Benchmark(String name, Op op) {
+			this.name = name;
+			this.op = op;
+		}
+	}
+
+	//written to by every benchmark, and printed at the end so it is never dead
+	private static long sink;
+
+	/**
+	 *
+	 * @param name
+	 * @param fen
+	 * @return Returns every benchmark on one position
+	 */
+	private static List<Benchmark> benchmarks(String name, String fen) {
+
+		List<Benchmark> list = new ArrayList<Benchmark>();
+		Board b = Board.fromFen(fen);
+		char side = b.turn;
+		char other = (side == 'w') ? 'b' : 'w';
+
+		list.add(new Benchmark(name + ".threatened", () -> {
+			long n = 0;
+			for(int c = 0; c < 8; c++)
+				for(int r = 0; r < 8; r++)
+					if(b.threatened(c, r, side))
+						n++;
+			return n;
+		}));
+
+		list.add(new Benchmark(name + ".inCheck", () -> (b.inCheck(side) ? 1 : 0) + (b.inCheck(other) ? 2 : 0)));
+
+		list.add(new Benchmark(name + ".canMove", () -> b.canMove(side) ? 1 : 0));
+
+		list.add(new Benchmark(name + ".transientmove", () -> {
+			long n = 0;
+			for(Piece p: (side == 'w') ? b.white_pieces : b.black_pieces)
+				for(int c = 0; c < 8; c++)
+					for(int r = 0; r < 8; r++)
+						if(b.transientmove(p, b.getTileAt(c, r)))
+							n++;
+			return n;
+		}));
+
+		//one benchmark per kind of piece, using the first one of that kind on the board
+		for(int type = Piece.PAWN; type <= Piece.KING; type++) {
+
+			Piece found = null;
+			for(Piece p: b.white_pieces)
+				if(found == null && p.getType() == type)
+					found = p;
+			for(Piece p: b.black_pieces)
+				if(found == null && p.getType() == type)
+					found = p;
+
+			if(found == null)
+				continue;
+
+			Piece p = found;
+			list.add(new Benchmark(name + ".threatens." + p.getClass().getSimpleName(), () -> {
+				long n = 0;
+				for(int c = 0; c < 8; c++)
+					for(int r = 0; r < 8; r++)
+						if(p.threatens(c, r, b))
+							n++;
+				return n;
+			}));
+		}
+
+		list.add(new Benchmark(name + ".toString", () -> b.toString().length()));
+
+		list.add(new Benchmark(name + ".snapshot", () -> b.snapshot().low));
+
+		//loads into a board of its own, so b stays as it is for the others
+		Position snapshot = b.snapshot();
+		Board target = Board.blankBoard();
+		list.add(new Benchmark(name + ".load", () -> {
+			target.load(snapshot);
+			return target.key;
+		}));
+
+		list.add(new Benchmark(name + ".copy", () -> b.copy().key));
+
+		//every capture in the position through the static exchange evaluation
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.legal(b, Bitboards.side(side), moves, 0);
+		list.add(new Benchmark(name + ".see", () -> {
+			long sum = 0;
+			for(int i = 0; i < n; i++)
+				if(Move.isCapture(moves[i]))
+					sum += b.see(moves[i]);
+			return sum;
+		}));
+
+		list.add(new Benchmark(name + ".hanging", () -> b.hanging(Bitboards.WHITE) ^ b.hanging(Bitboards.BLACK)));
+
+		return list;
+	}
+
+	/**
+	 *
+	 * @param op
+	 * @param millis
+	 * @return Returns the average nanoseconds per call of op, over roughly millis milliseconds
+	 */
+	public static double measure(Op op, long millis) {
+
+		long end = System.nanoTime() + millis * 1000000L;
+		long calls = 0, start = System.nanoTime(), now;
+
+		//check the clock every so many calls, so reading it doesn't swamp fast operations
+		do {
+			for(int i = 0; i < 64; i++)
+				sink += op.run();
+			calls += 64;
+			now = System.nanoTime();
+		} while(now < end);
+
+		return (double)(now - start) / calls;
+	}
+
+	public static void main(String args[]) {
+
+		String filter = (args.length > 0) ? args[0] : "";
+		int warmups = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+		long millis = (args.length > 3) ? Long.parseLong(args[3]) : 500;
+
+		List<Benchmark> all = new ArrayList<Benchmark>();
+		all.addAll(benchmarks("opening", OPENING));
+		all.addAll(benchmarks("middlegame", MIDDLEGAME));
+		all.addAll(benchmarks("endgame", ENDGAME));
+
+		System.out.printf("%-40s %14s %12s%n", "Benchmark", "ns/op", "error");
+
+		for(Benchmark bm: all) {
+
+			if(!bm.name.contains(filter))
+				continue;
+
+			for(int i = 0; i < warmups; i++)
+				measure(bm.op, millis);
+
+			double[] results = new double[iterations];
+			double mean = 0;
+			for(int i = 0; i < iterations; i++) {
+				results[i] = measure(bm.op, millis);
+				mean += results[i] / iterations;
+			}
+
+			double var = 0;
+			for(double r: results)
+				var += (r - mean) * (r - mean);
+			double error = (iterations > 1) ? Math.sqrt(var / (iterations - 1)) : 0;
+
+			System.out.printf("%-40s %14.1f %12.1f%n", bm.name, mean, error);
+		}
+
+		System.out.println("(sink " + sink + ")");
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>Load test for the game server</h1>
+ *
+ * Starts a GameServer in this JVM, opens a number of games through its socket and has a few client connections play
+ * random legal moves in all of them round robin, starting a new game whenever one finishes. Prints how many games are
+ * hosted, how many moves per second get through and roughly how much heap each game takes.
+ *
+ * Usage: java bench.ServerLoad [games] [connections] [seconds]
+ *
+ * */
+
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import server.GameServer;
+
+public class ServerLoad {
+
+	/* One client connection, playing its share of the games */
+	private static class Client extends Thread {
+
+		final Socket socket;
+		final BufferedReader in;
+		final PrintWriter out;
+		final long[] ids;
+		final Random random;
+		volatile boolean running = true;
+		long moves, finished;
+
+		Client(int port, int games, long seed) throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.US_ASCII);
+			ids = new long[games];
+			random = new Random(seed);
+		}
+
+		String ask(String line) throws IOException {
+			out.println(line);
+			out.flush();
+			return in.readLine();
+		}
+
+		long newGame() throws IOException {
+			return Long.parseLong(ask("new").substring(3));
+		}
+
+		public void run() {
+			try {
+				for(int i = 0; i < ids.length; i++)
+					ids[i] = newGame();
+
+				while(running)
+					for(int i = 0; i < ids.length && running; i++) {
+
+						String[] legal = ask("moves " + ids[i]).split(" ");
+
+						//only "ok" means the game is over
+						if(legal.length == 1 || !ask("move " + ids[i] + " " + legal[1 + random.nextInt(legal.length - 1)]).endsWith("ongoing")) {
+							ask("close " + ids[i]);
+							ids[i] = newGame();
+							finished++;
+						}
+						else
+							moves++;
+					}
+
+				socket.close();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public static void main(String args[]) throws Exception {
+
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+		int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		long before = rt.totalMemory() - rt.freeMemory();
+
+		GameServer server = new GameServer(60000);
+		int port = server.start(0);
+
+		Client[] clients = new Client[connections];
+		for(int i = 0; i < connections; i++) {
+			clients[i] = new Client(port, games / connections + ((i < games % connections) ? 1 : 0), i);
+			clients[i].start();
+		}
+
+		long start = System.nanoTime();
+		Thread.sleep(seconds * 1000L);
+
+		System.gc();
+		long after = rt.totalMemory() - rt.freeMemory();
+		int hosted = server.games();
+
+		for(Client c: clients)
+			c.running = false;
+		for(Client c: clients)
+			c.join();
+
+		long time = System.nanoTime() - start;
+		long moves = 0, finished = 0;
+		for(Client c: clients) {
+			moves += c.moves;
+			finished += c.finished;
+		}
+
+		System.out.println("Threads: " + (server.usesVirtualThreads() ? "virtual" : "platform"));
+		System.out.println("Games hosted: " + hosted + ", finished: " + finished);
+		System.out.println("Moves: " + moves + " (" + moves * 1000000000L / time + " moves/s)");
+		System.out.println("Heap per game: about " + ((hosted == 0) ? 0 : (after - before) / hosted / 1024) + " KB");
+		System.out.println(server.execute("stats"));
+
+		server.shutdown();
+	}
+}
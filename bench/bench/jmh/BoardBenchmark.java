@@ -0,0 +1,137 @@
+package bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.Microbench;
+import parts.Bitboards;
+import parts.Board;
+import parts.Move;
+import parts.MoveGenerator;
+import parts.Piece;
+import parts.Position;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * The Board benchmarks of Microbench under JMH, on the same opening, middlegame and endgame positions. JMH forks a
+ * fresh JVM for every benchmark and measures it the same way each time, so results can be compared between
+ * machines and between commits.
+ *
+ * Run with "gradle :bench:jmh", or "gradle :bench:jmh -Pjmh=see" for the benchmarks matching a pattern.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+
+	Board b;
+	char side, other;
+
+	//for load, a board of its own so b stays as it is for the others
+	Position snapshot;
+	Board target;
+
+	//the legal moves in the position, for see
+	int[] moves = new int[MoveGenerator.MAX_MOVES];
+	int count;
+
+	@Setup
+	public void setup() {
+		b = Board.fromFen(fen(position));
+		side = b.turn;
+		other = (side == 'w') ? 'b' : 'w';
+
+		snapshot = b.snapshot();
+		target = Board.blankBoard();
+		count = MoveGenerator.legal(b, Bitboards.side(side), moves, 0);
+	}
+
+	static String fen(String position) {
+		switch(position) {
+			case "opening": return Microbench.OPENING;
+			case "middlegame": return Microbench.MIDDLEGAME;
+			default: return Microbench.ENDGAME;
+		}
+	}
+
+	@Benchmark
+	public void threatened(Blackhole bh) {
+		for(int c = 0; c < 8; c++)
+			for(int r = 0; r < 8; r++)
+				bh.consume(b.threatened(c, r, side));
+	}
+
+	@Benchmark
+	public void inCheck(Blackhole bh) {
+		bh.consume(b.inCheck(side));
+		bh.consume(b.inCheck(other));
+	}
+
+	@Benchmark
+	public boolean canMove() {
+		return b.canMove(side);
+	}
+
+	@Benchmark
+	public void transientmove(Blackhole bh) {
+		for(Piece p: (side == 'w') ? b.white_pieces : b.black_pieces)
+			for(int c = 0; c < 8; c++)
+				for(int r = 0; r < 8; r++)
+					bh.consume(b.transientmove(p, b.getTileAt(c, r)));
+	}
+
+	@Benchmark
+	public String toText() {
+		return b.toString();
+	}
+
+	@Benchmark
+	public Position snapshot() {
+		return b.snapshot();
+	}
+
+	@Benchmark
+	public long load() {
+		target.load(snapshot);
+		return target.key;
+	}
+
+	@Benchmark
+	public Board copy() {
+		return b.copy();
+	}
+
+	@Benchmark
+	public void see(Blackhole bh) {
+		for(int i = 0; i < count; i++)
+			if(Move.isCapture(moves[i]))
+				bh.consume(b.see(moves[i]));
+	}
+
+	@Benchmark
+	public void hanging(Blackhole bh) {
+		bh.consume(b.hanging(Bitboards.WHITE));
+		bh.consume(b.hanging(Bitboards.BLACK));
+	}
+}
@@ -0,0 +1,67 @@
+package bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import parts.Board;
+import parts.Piece;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Each kind of piece's threatens, asked about every square, using the first piece of that kind on the board. A kind
+ * the position doesn't have is measured on an empty loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ThreatensBenchmark {
+
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+
+	@Param({"Pawn", "Knight", "Bishop", "Rook", "Queen", "King"})
+	public String piece;
+
+	Board b;
+	Piece p;
+
+	@Setup
+	public void setup() {
+		b = Board.fromFen(BoardBenchmark.fen(position));
+
+		for(Piece q: b.white_pieces)
+			if(p == null && q.getClass().getSimpleName().equals(piece))
+				p = q;
+		for(Piece q: b.black_pieces)
+			if(p == null && q.getClass().getSimpleName().equals(piece))
+				p = q;
+	}
+
+	@Benchmark
+	public void threatens(Blackhole bh) {
+		if(p == null)
+			return;
+
+		for(int c = 0; c < 8; c++)
+			for(int r = 0; r < 8; r++)
+				bh.consume(p.threatens(c, r, b));
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>Opening book</h1>
+ *
+ * Makes Polyglot .bin opening books out of PGN files, and looks positions up in them.
+ *
+ * A made book takes the first moves of every game that replays, weighted by how often each was played. Books are keyed
+ * with Polyglot's own random numbers, so made books work in other programs and theirs work here. A book keyed with
+ * some other table can be probed by giving a file with its 781 numbers after -keys.
+ *
+ * Usage:
+ *
+ * java chess.Book make [file.pgn] [book.bin] [plies]  - makes a book from the first plies of every game, 20 by default
+ * java chess.Book probe [-keys file] [book.bin] [fen]  - lists the book moves for the starting position or the FEN
+ *
+ * */
+
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import parts.Board;
+import parts.PgnReader;
+import parts.PolyglotBook;
+import parts.San;
+
+public class Book {
+
+	/* Every move played from every position, with how many times */
+	private static class Collector implements PgnReader.Handler {
+
+		final int plies;
+
+		//for each key, Polyglot moves and their counts, one after the other
+		final HashMap<Long, int[]> positions = new HashMap<Long, int[]>();
+		long games, entries;
+
+		Collector(int plies) {
+			this.plies = plies;
+		}
+
+		public void game(Board board, int[] moves, int count, CharSequence result, String error, long offset) {
+
+			if(error != null)
+				return;
+			games++;
+
+			//the board is at the end of the game, taking the moves back goes through every position it had
+			for(int i = count - 1; i >= 0 && board.ply > 0; i--) {
+				board.unmakeMove();
+
+				if(i < plies)
+					add(PolyglotBook.polyglotKey(board), PolyglotBook.encode(moves[i]));
+			}
+		}
+
+		void add(long key, int move) {
+
+			int[] list = positions.get(key);
+			if(list == null) {
+				list = new int[] {1, move, 0};
+				positions.put(key, list);
+			}
+
+			//list[0] is how many of the pairs after it are used
+			for(int i = 0; i < list[0]; i++)
+				if(list[1 + 2 * i] == move) {
+					list[2 + 2 * i]++;
+					return;
+				}
+
+			if(1 + 2 * list[0] == list.length) {
+				list = Arrays.copyOf(list, list.length * 2 + 1);
+				positions.put(key, list);
+			}
+
+			list[1 + 2 * list[0]] = move;
+			list[2 + 2 * list[0]] = 1;
+			list[0]++;
+		}
+	}
+
+	private static void make(Path pgn, Path out, int plies) throws IOException {
+
+		Collector c = new Collector(plies);
+		PgnReader.read(pgn, c);
+
+		//Polyglot keys are sorted unsigned, flipping the top bit makes that the same as signed
+		long[] sorted = new long[c.positions.size()];
+		int k = 0, n = 0;
+		for(long key: c.positions.keySet()) {
+			sorted[k++] = key ^ Long.MIN_VALUE;
+			n += c.positions.get(key)[0];
+		}
+		Arrays.sort(sorted);
+
+		long[] keys = new long[n];
+		int[] moves = new int[n], weights = new int[n];
+		int e = 0;
+
+		for(long flipped: sorted) {
+			long key = flipped ^ Long.MIN_VALUE;
+			int[] list = c.positions.get(key);
+
+			for(int i = 0; i < list[0]; i++, e++) {
+				keys[e] = key;
+				moves[e] = list[1 + 2 * i];
+				weights[e] = list[2 + 2 * i];
+			}
+		}
+
+		PolyglotBook.write(out, keys, moves, weights, n);
+		System.out.println(c.games + " games, " + sorted.length + " positions, " + n + " entries written to " + out);
+	}
+
+	private static void probe(Path file, long[] random, String fen) throws IOException {
+
+		Board board = fen.isEmpty() ? new Board() : Board.fromFen(fen);
+
+		try(PolyglotBook book = (random == null) ? new PolyglotBook(file) : new PolyglotBook(file, random)) {
+
+			int[] moves = new int[256], weights = new int[256];
+			int n = book.moves(board, moves, weights);
+
+			long total = 0;
+			for(int i = 0; i < n; i++)
+				total += weights[i];
+
+			System.out.println(book.entries + " entries, key " + Long.toHexString(book.key(board)) + ", " + n + " moves");
+
+			for(int i = 0; i < n; i++)
+				System.out.printf("%-8s %6d %6.1f%%%n", San.toSan(board, moves[i]), weights[i], (total == 0) ? 0 : 100.0 * weights[i] / total);
+		}
+	}
+
+	public static void main(String args[]) throws IOException {
+
+		if(args.length >= 3 && args[0].equals("make")) {
+			make(Paths.get(args[1]), Paths.get(args[2]), (args.length > 3) ? Integer.parseInt(args[3]) : 20);
+			return;
+		}
+
+		if(args.length >= 2 && args[0].equals("probe")) {
+			int i = 1;
+			long[] random = null;
+
+			if(args[i].equals("-keys") && args.length > i + 2) {
+				random = PolyglotBook.readRandom(Paths.get(args[i + 1]));
+				i += 2;
+			}
+
+			Path file = Paths.get(args[i++]);
+
+			String fen = "";
+			for(; i < args.length; i++)
+				fen += args[i] + " ";
+
+			probe(file, random, fen.trim());
+			return;
+		}
+
+		System.out.println("Usage: java chess.Book make [file.pgn] [book.bin] [plies]");
+		System.out.println("       java chess.Book probe [-keys file] [book.bin] [fen]");
+	}
+}
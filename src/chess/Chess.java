@@ -10,7 +10,7 @@
  * able to use special moves such as castling, en passant and promotion of pieces. 
  * 
  * To move your piece, simply type in the command line [rankFile1] [rankfile2], where rankfile1 is the piece you want to move,
- * and rankfile2 is spot you want to move the piece to.
+ * and rankfile2 is spot you want to move the piece to. A single move in algebraic notation, like Nf3 or O-O, works too.
  * 
  * To quit, simply type in "resign" and to draw, type in [rankFile1] [rankFile2] "draw?"
  *
@@ -22,7 +22,10 @@ package chess;
 import java.util.Scanner;
 
 import parts.Board;
+import parts.GameStatus;
+import parts.Move;
 import parts.Piece;
+import parts.San;
 import parts.Square;
 
 
@@ -41,7 +44,8 @@ public class Chess {
 		char pc;
 		//Piece king;
 
-		boolean cantMove, inCheck;
+		GameStatus referee = new GameStatus();
+		int status;
 		
 		String str;
 
@@ -66,38 +70,59 @@ public class Chess {
 			if(!str.equals("resign")) {
 
 					String[] arr = str.split(" ");
-					Square s1 = board.getTileAt(arr[0]);
-					Square s2 = board.getTileAt(arr[1]);
-					String third = "";
 					
-					if(arr.length > 2)
-						third = arr[2];
-					
-					if(third.equals("draw?")) {
+					//a single word is a move in SAN, like "Nf3" or "exd5"
+					if(arr.length == 1) {
 						
-						draw = true;
-						break;
+						int move = San.parse(board, arr[0]);
 						
+						if(move != Move.NONE) {
+							board.makeMove(move);
+							invalidmove = false;
+							turns++;
+						}
+						else {
+							System.out.println("Illegal move, try again");
+							invalidmove = true;
+							continue;
+						}
 					}
 					
-					Piece piece = (s1.filled) ? s1.p : null;
+					else {
+						Square s1 = board.getTileAt(arr[0]);
+						Square s2 = board.getTileAt(arr[1]);
+						String third = "";
+					
+						if(arr.length > 2)
+							third = arr[2];
+					
+						if(third.equals("draw?")) {
+						
+							draw = true;
+							break;
+						
+						}
+					
+						Piece piece = (s1.filled) ? s1.p : null;
 
-					//System.out.println(s1 + " getting to: " + s2);
+						//System.out.println(s1 + " getting to: " + s2);
 
-					if(piece != null && piece.getColor() == pc && board.tryMove(s1, s2, third)) {
+						if(piece != null && piece.getColor() == pc && board.tryMove(s1, s2, third)) {
 
-						invalidmove = false;
+							invalidmove = false;
 						
-						//System.out.println(s1 + " has moved to: " + s2);
-						turns++;
+							//System.out.println(s1 + " has moved to: " + s2);
+							turns++;
 
-					}
+						}
 
-					else {
-						System.out.println("Illegal move, try again");
-						invalidmove = true;
+						else {
+							System.out.println("Illegal move, try again");
+							invalidmove = true;
 						
-						//System.out.println("Cannot move from " + s1.pos() + " to " + s2.pos());
+							//System.out.println("Cannot move from " + s1.pos() + " to " + s2.pos());
+						}
+					
 					}
 					
 					/*System.out.print("\n");
@@ -111,22 +136,20 @@ public class Chess {
 						checkmate = board.resolve_check(checks, (King) king);
 					} */
 
-					inCheck = board.inCheck(turns % 2 == 1 ? 'b' : 'w');
-					cantMove = !board.canMove(turns % 2 == 1 ? 'b' : 'w');
-					
+					status = referee.status(board);
 					
 					//System.out.println("checking special conditions:");
-					if(cantMove && inCheck) {
+					if(status == GameStatus.CHECKMATE) {
 						System.out.println("Checkmate");
 						checkmate = true;
 						break;
 					}
-					else if(cantMove && !inCheck) {
-						System.out.println("Stalemate");
+					else if(GameStatus.isDraw(status)) {
+						System.out.println(GameStatus.name(status));
 						draw = true;
 						break;
 					}
-					else if(!cantMove && inCheck) {
+					else if(board.inCheck(board.turn)) {
 						System.out.println("Check");
 					}/**/
 					
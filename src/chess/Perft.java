@@ -0,0 +1,177 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>Perft</h1>
+ *
+ * Counts every position reachable from a board to a fixed depth, which both tests the move generator against known
+ * numbers and measures how fast it runs.
+ *
+ * Usage:
+ *
+ * java chess.Perft [depth] [fen]     - perft from the starting position or the given FEN, with a divide per root move
+ * java chess.Perft check [maxdepth]  - runs the standard reference positions and checks their counts
+ *
+ * */
+
+package chess;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.Move;
+import parts.MoveGenerator;
+
+public class Perft {
+
+	/* Standard reference positions and their known node counts, by depth starting at 1.
+	 * They cover castling (through and out of check), en passant (including the discovered check case)
+	 * and under-promotions. */
+	public static final String[] FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+	};
+	public static final long[][] COUNTS = {
+		{20, 400, 8902, 197281, 4865609},
+		{48, 2039, 97862, 4085603},
+		{14, 191, 2812, 43238, 674624},
+		{6, 264, 9467, 422333},
+		{44, 1486, 62379, 2103487},
+		{46, 2079, 89890, 3894594}
+	};
+
+	private final Board board;
+	private final int[] moves;
+
+	/**
+	 *
+	 * @param board
+	 * @param maxdepth
+	 *
+	 * The move buffer is sized once for the deepest search, each ply writes past the moves of the ply before.
+	 */
+	public Perft(Board board, int maxdepth) {
+		this.board = board;
+		this.moves = new int[MoveGenerator.MAX_MOVES * (maxdepth + 1)];
+	}
+
+	/**
+	 *
+	 * @param depth
+	 * @return Returns the number of leaf positions depth plies from the board
+	 */
+	public long count(int depth) {
+		return count(depth, 0);
+	}
+
+	private long count(int depth, int start) {
+
+		if(depth == 0)
+			return 1;
+
+		int end = MoveGenerator.legal(board, Bitboards.side(board.turn), moves, start);
+
+		//no need to make the last ply, the number of legal moves is the count
+		if(depth == 1)
+			return end - start;
+
+		long nodes = 0;
+
+		for(int i = start; i < end; i++) {
+			board.makeMove(moves[i]);
+			nodes += count(depth - 1, end);
+			board.unmakeMove();
+		}
+
+		return nodes;
+	}
+
+	/**
+	 *
+	 * @param depth
+	 * @return Returns the total number of leaf positions, printing the count under each root move along the way
+	 */
+	public long divide(int depth) {
+
+		int end = MoveGenerator.legal(board, Bitboards.side(board.turn), moves, 0);
+		long total = 0;
+
+		for(int i = 0; i < end; i++) {
+			board.makeMove(moves[i]);
+			long nodes = count(depth - 1, end);
+			board.unmakeMove();
+
+			System.out.println(Move.toString(moves[i]) + ": " + nodes);
+			total += nodes;
+		}
+
+		return total;
+	}
+
+	//runs every reference position up to maxdepth, returns true if all of them matched
+	public static boolean check(int maxdepth) {
+
+		boolean ok = true;
+		long allnodes = 0, alltime = 0;
+
+		for(int i = 0; i < FENS.length; i++) {
+
+			System.out.println(FENS[i]);
+
+			for(int depth = 1; depth <= Math.min(maxdepth, COUNTS[i].length); depth++) {
+
+				Perft perft = new Perft(Board.fromFen(FENS[i]), depth);
+
+				long time = System.nanoTime();
+				long nodes = perft.count(depth);
+				time = System.nanoTime() - time;
+
+				boolean match = nodes == COUNTS[i][depth - 1];
+				ok &= match;
+				allnodes += nodes;
+				alltime += time;
+
+				System.out.println("  depth " + depth + ": " + nodes + (match ? " ok" : " FAILED, expected " + COUNTS[i][depth - 1])
+						+ "  (" + nps(nodes, time) + " nodes/s)");
+			}
+		}
+
+		System.out.println((ok ? "All positions matched" : "Some positions FAILED") + ", " + allnodes + " nodes at " + nps(allnodes, alltime) + " nodes/s");
+		return ok;
+	}
+
+	public static long nps(long nodes, long nanos) {
+		return (nanos == 0) ? 0 : nodes * 1000000000L / nanos;
+	}
+
+	public static void main(String args[]) {
+
+		if(args.length > 0 && args[0].equals("check")) {
+			boolean ok = check(args.length > 1 ? Integer.parseInt(args[1]) : 4);
+			System.exit(ok ? 0 : 1);
+		}
+
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+
+		String fen = "";
+		for(int i = 1; i < args.length; i++)
+			fen += args[i] + " ";
+
+		Board board = fen.isEmpty() ? new Board() : Board.fromFen(fen);
+		board.printBoard();
+
+		Perft perft = new Perft(board, depth);
+
+		long time = System.nanoTime();
+		long nodes = perft.divide(depth);
+		time = System.nanoTime() - time;
+
+		System.out.println();
+		System.out.println("Nodes: " + nodes);
+		System.out.println("Time: " + (time / 1000000) + " ms");
+		System.out.println("Nodes/s: " + nps(nodes, time));
+	}
+}
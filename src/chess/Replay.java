@@ -0,0 +1,163 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>Replay</h1>
+ *
+ * Replays every game in a PGN file through the move generator, which checks both the file and the generator, and
+ * measures how fast games can be loaded.
+ *
+ * With -hanging every position of every game that replays is also checked for pieces the side to move would lose
+ * to a capture (see Board.hanging), and how often that happened is added to the report.
+ *
+ * Usage:
+ *
+ * java chess.Replay [-hanging] [file.pgn] [threads]
+ *
+ * */
+
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.PgnReader;
+
+public class Replay {
+
+	//how many bad games are printed before the rest are only counted, by all threads together
+	private static final int MAX_ERRORS = 10;
+
+	/* Totals for one thread's share of the file, added together at the end */
+	private static class Tally implements PgnReader.Handler {
+
+		final boolean hanging;
+
+		//bad games printed so far, shared by every thread's tally
+		final AtomicInteger printed;
+
+		long games, invalid, plies;
+		long white, black, draw, unknown;
+
+		//with hanging: positions looked at, how many had something hanging, how many pieces that was in all, and how
+		//many games had any
+		long positions, hangingPositions, hangingPieces, hangingGames;
+
+		Tally(boolean hanging, AtomicInteger printed) {
+			this.hanging = hanging;
+			this.printed = printed;
+		}
+
+		public void game(Board board, int[] moves, int count, CharSequence result, String error, long offset) {
+
+			games++;
+			plies += count;
+
+			if(error != null) {
+				invalid++;
+				if(printed.incrementAndGet() <= MAX_ERRORS)
+					System.out.println("game at byte " + offset + ": " + error);
+			}
+
+			if(result.length() == 3 && result.charAt(0) == '1')
+				white++;
+			else if(result.length() == 3 && result.charAt(0) == '0')
+				black++;
+			else if(result.length() == 7)
+				draw++;
+			else
+				unknown++;
+
+			if(hanging && error == null)
+				hanging(board, count);
+		}
+
+		//goes back through the game from its last position, counting the pieces left hanging in each
+		private void hanging(Board board, int count) {
+
+			boolean any = false;
+
+			for(int i = count; i >= 0; i--) {
+				long h = board.hanging(Bitboards.side(board.turn));
+
+				positions++;
+				if(h != 0) {
+					hangingPositions++;
+					hangingPieces += Long.bitCount(h);
+					any = true;
+				}
+
+				if(i > 0)
+					board.unmakeMove();
+			}
+
+			if(any)
+				hangingGames++;
+		}
+
+		void add(Tally t) {
+			games += t.games;
+			invalid += t.invalid;
+			plies += t.plies;
+			white += t.white;
+			black += t.black;
+			draw += t.draw;
+			unknown += t.unknown;
+			positions += t.positions;
+			hangingPositions += t.hangingPositions;
+			hangingPieces += t.hangingPieces;
+			hangingGames += t.hangingGames;
+		}
+	}
+
+	public static void main(String args[]) throws IOException {
+
+		int a = 0;
+		boolean hanging = false;
+
+		if(args.length > 0 && args[0].equals("-hanging")) {
+			hanging = true;
+			a++;
+		}
+
+		if(args.length == a) {
+			System.out.println("Usage: java chess.Replay [-hanging] [file.pgn] [threads]");
+			return;
+		}
+
+		Path file = Paths.get(args[a]);
+		int threads = (args.length > a + 1) ? Integer.parseInt(args[a + 1]) : 1;
+
+		AtomicInteger printed = new AtomicInteger();
+		Tally[] tallies = new Tally[threads];
+		for(int i = 0; i < threads; i++)
+			tallies[i] = new Tally(hanging, printed);
+
+		long time = System.nanoTime();
+
+		if(threads == 1)
+			PgnReader.read(file, tallies[0]);
+		else
+			PgnReader.readParallel(file, threads, i -> tallies[i]);
+
+		time = System.nanoTime() - time;
+
+		Tally total = new Tally(hanging, printed);
+		for(Tally t: tallies)
+			total.add(t);
+
+		System.out.println();
+		System.out.println("Games: " + total.games + " (" + (total.games - total.invalid) + " valid, " + total.invalid + " invalid)");
+		System.out.println("Plies: " + total.plies);
+		System.out.println("Results: 1-0 " + total.white + ", 0-1 " + total.black + ", 1/2-1/2 " + total.draw + ", other " + total.unknown);
+		if(hanging)
+			System.out.println("Hanging: " + total.hangingPieces + " pieces in " + total.hangingPositions + " of "
+					+ total.positions + " positions, in " + total.hangingGames + " of " + (total.games - total.invalid) + " games");
+		System.out.println("Time: " + (time / 1000000) + " ms");
+		System.out.println("Games/s: " + Perft.nps(total.games, time) + ", plies/s: " + Perft.nps(total.plies, time));
+	}
+}
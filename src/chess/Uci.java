@@ -0,0 +1,419 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>UCI engine</h1>
+ *
+ * Speaks the Universal Chess Interface on standard input and output, so the engine can be run by chess GUIs and
+ * tournament managers instead of being played by hand like in Chess.
+ *
+ * The search runs on a thread of its own while this one keeps reading commands, so "isready", "stop" and "ponderhit"
+ * are answered at once. The search looks at its stop flag on every node, so it is back with a move almost as soon as
+ * "stop" comes in.
+ *
+ * With a Book set (a Polyglot .bin file, see Book), positions in it are answered from the book without searching.
+ * BookKeys is only for books keyed with some other table than Polyglot's, it's the file with those 781 numbers.
+ *
+ * With Tablebases set to a directory of tables made by engine.TablebaseGenerator, endgames in them are played
+ * perfectly.
+ *
+ * Understood: uci, isready, setoption (Hash, Ponder, Book, BookKeys, Tablebases), ucinewgame, position startpos|fen ... [moves ...],
+ * go [depth n] [nodes n] [movetime ms] [wtime ms] [btime ms] [winc ms] [binc ms] [movestogo n] [infinite] [ponder],
+ * stop, ponderhit and quit.
+ *
+ * Usage: java chess.Uci
+ *
+ * */
+
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.Limits;
+import engine.Search;
+import engine.Tablebase;
+import engine.TranspositionTable;
+import parts.Board;
+import parts.Move;
+import parts.PgnReader;
+import parts.PolyglotBook;
+
+public class Uci {
+
+	public static final int DEFAULT_HASH = 64;
+
+	private final PrintStream out;
+
+	//the search always works on this board, position loads new positions into it
+	private final Board board = new Board();
+	private final TranspositionTable tt = new TranspositionTable(DEFAULT_HASH);
+	private final Search search = new Search(board, tt);
+
+	//a daemon so a search nobody stopped never keeps the program running
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "search");
+		t.setDaemon(true);
+		return t;
+	});
+	private Future<?> running;
+
+	private PolyglotBook book;
+	private String bookPath = "";
+	private long[] bookKeys;
+	private final Random random = new Random();
+
+	//UCI wants no bestmove during "go infinite" or "go ponder" until stop or ponderhit, even if the search is done
+	private boolean holding;
+	private boolean pondering;
+
+	//the time the search gets once a ponder search becomes a real one
+	private long ponderTime;
+
+	public Uci(PrintStream out) {
+		this.out = out;
+		search.listener = s -> send(info(s));
+	}
+
+	//one line to the GUI, whole and right away, whichever thread it comes from
+	private void send(String line) {
+		synchronized(out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	/**
+	 *
+	 * @param line
+	 * @return Returns false once the line was quit
+	 */
+	public boolean execute(String line) {
+
+		String[] args = line.trim().split("\\s+");
+
+		switch(args[0]) {
+
+			case "uci":
+				send("id name Chess");
+				send("id author Anand Raju and Sammy Berger");
+				send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max 4096");
+				send("option name Ponder type check default false");
+				send("option name Book type string default <empty>");
+				send("option name BookKeys type string default <empty>");
+				send("option name Tablebases type string default <empty>");
+				send("uciok");
+				break;
+
+			case "isready":
+				send("readyok");
+				break;
+
+			case "setoption":
+				setOption(args);
+				break;
+
+			case "ucinewgame":
+				waitForSearch();
+				tt.clear();
+				board.loadFen(PgnReader.START_FEN);
+				break;
+
+			case "position":
+				waitForSearch();
+				position(args);
+				break;
+
+			case "go":
+				waitForSearch();
+				go(args);
+				break;
+
+			case "stop":
+				stop();
+				break;
+
+			case "ponderhit":
+				ponderhit();
+				break;
+
+			case "quit":
+				stop();
+				worker.shutdownNow();
+				return false;
+
+			default:
+				//UCI says to ignore anything unknown
+				break;
+		}
+
+		return true;
+	}
+
+	//"setoption name Hash value 128"
+	private void setOption(String[] args) {
+
+		//the value is the rest of the line, a path can have spaces in it
+		String name = "", value = "";
+		for(int i = 1; i < args.length - 1; i++) {
+			if(args[i].equals("name"))
+				name = args[i + 1];
+			else if(args[i].equals("value")) {
+				value = String.join(" ", Arrays.copyOfRange(args, i + 1, args.length));
+				break;
+			}
+		}
+
+		if(name.equalsIgnoreCase("Hash")) {
+			try {
+				int megabytes = Integer.parseInt(value);
+				waitForSearch();
+				tt.resize(Math.max(1, megabytes));
+			} catch(NumberFormatException e) {
+				send("info string bad Hash value " + value);
+			}
+		}
+
+		else if(name.equalsIgnoreCase("BookKeys")) {
+			try {
+				bookKeys = (value.isEmpty() || value.equals("<empty>")) ? null : PolyglotBook.readRandom(Paths.get(value));
+			} catch(IOException | IllegalArgumentException e) {
+				send("info string can't read book keys: " + e.getMessage());
+				bookKeys = null;
+			}
+			openBook(bookPath);
+		}
+
+		else if(name.equalsIgnoreCase("Book"))
+			openBook(value);
+
+		else if(name.equalsIgnoreCase("Tablebases")) {
+			waitForSearch();
+			try {
+				search.tablebase = (value.isEmpty() || value.equals("<empty>")) ? null : new Tablebase(Paths.get(value));
+			} catch(IOException e) {
+				send("info string can't read tablebases: " + e.getMessage());
+				search.tablebase = null;
+			}
+		}
+
+		//Ponder only tells us the GUI may send "go ponder", nothing to set
+	}
+
+	//maps the book, with the keys it needs, or drops it for an empty path
+	private void openBook(String path) {
+
+		waitForSearch();
+		bookPath = path;
+
+		try {
+			if(book != null)
+				book.close();
+			if(path.isEmpty() || path.equals("<empty>"))
+				book = null;
+			else
+				book = (bookKeys == null) ? new PolyglotBook(Paths.get(path)) : new PolyglotBook(Paths.get(path), bookKeys);
+		} catch(IOException e) {
+			send("info string can't open book: " + e.getMessage());
+			book = null;
+		}
+	}
+
+	//"position startpos moves e2e4 e7e5" or "position fen <fen> moves ..."
+	private void position(String[] args) {
+
+		int i = 1, moves = args.length;
+		for(int j = 1; j < args.length; j++)
+			if(args[j].equals("moves")) {
+				moves = j;
+				break;
+			}
+
+		if(i < args.length && args[i].equals("fen")) {
+			StringBuilder fen = new StringBuilder();
+			for(i = 2; i < moves; i++)
+				fen.append(args[i]).append(' ');
+
+			try {
+				board.loadFen(fen);
+			} catch(IllegalArgumentException e) {
+				send("info string " + e.getMessage());
+				board.loadFen(PgnReader.START_FEN);
+			}
+		}
+		else
+			board.loadFen(PgnReader.START_FEN);
+
+		for(i = moves + 1; i < args.length; i++) {
+			int move = Move.parse(board, args[i]);
+
+			if(move == Move.NONE) {
+				send("info string illegal move " + args[i]);
+				return;
+			}
+
+			board.makeMove(move);
+		}
+	}
+
+	private void go(String[] args) {
+
+		Limits limits = new Limits();
+		boolean ponder = false;
+
+		for(int i = 1; i < args.length; i++) {
+
+			String arg = args[i];
+
+			if(arg.equals("infinite"))
+				limits.infinite = true;
+			else if(arg.equals("ponder"))
+				ponder = true;
+			else if(i + 1 < args.length) {
+				long value;
+				try {
+					value = Long.parseLong(args[i + 1]);
+				} catch(NumberFormatException e) {
+					continue;
+				}
+
+				switch(arg) {
+					case "depth": limits.depth = (int)value; break;
+					case "nodes": limits.nodes = value; break;
+					case "movetime": limits.movetime = value; break;
+					case "wtime": limits.wtime = value; break;
+					case "btime": limits.btime = value; break;
+					case "winc": limits.winc = value; break;
+					case "binc": limits.binc = value; break;
+					case "movestogo": limits.movestogo = (int)value; break;
+					default: continue;
+				}
+				i++;
+			}
+		}
+
+		//known openings are played straight from the book
+		if(book != null && !ponder && !limits.infinite) {
+			int move = book.pick(board, random);
+
+			if(move != Move.NONE) {
+				send("info string book move");
+				send("bestmove " + Move.toString(move));
+				return;
+			}
+		}
+
+		//a ponder search has no time limit until ponderhit, then it gets what it would have had
+		synchronized(this) {
+			pondering = ponder;
+			ponderTime = limits.timeFor(board.turn);
+			holding = ponder || limits.infinite;
+		}
+		if(ponder)
+			limits.infinite = true;
+
+		//started here, so a stop read right after this line can't be missed by the search thread
+		search.start(limits);
+
+		running = worker.submit(() -> {
+
+			int move = search.run(limits);
+
+			synchronized(this) {
+				try {
+					while(holding)
+						wait();
+				} catch(InterruptedException e) {
+					//quit
+					return;
+				}
+			}
+
+			int[] pv = search.principalVariation();
+			send("bestmove " + Move.toString(move) + ((pv.length > 1 && pv[0] == move) ? " ponder " + Move.toString(pv[1]) : ""));
+		});
+	}
+
+	private void stop() {
+		synchronized(this) {
+			holding = false;
+			pondering = false;
+			notifyAll();
+		}
+		search.stop();
+	}
+
+	//the opponent played the move we were pondering on, so the search carries on as a real one
+	private void ponderhit() {
+		synchronized(this) {
+			if(!pondering)
+				return;
+
+			pondering = false;
+			holding = false;
+			search.setTimeLimit(ponderTime);
+			notifyAll();
+		}
+	}
+
+	//stops the search if there is one and waits for its bestmove, the board can't change under it
+	private void waitForSearch() {
+
+		if(running == null)
+			return;
+
+		stop();
+
+		try {
+			running.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException e) {
+			send("info string search failed: " + e.getCause());
+		}
+
+		running = null;
+	}
+
+	//"info depth 12 score cp 35 nodes ... pv ..." for one finished iteration
+	private String info(Search s) {
+
+		long time = s.elapsed() / 1000000L;
+		StringBuilder sb = new StringBuilder("info depth ").append(s.completedDepth).append(" score ");
+
+		if(s.score >= Search.MATE_BOUND)
+			sb.append("mate ").append((Search.MATE - s.score + 1) / 2);
+		else if(s.score <= -Search.MATE_BOUND)
+			sb.append("mate -").append((Search.MATE + s.score) / 2);
+		else
+			sb.append("cp ").append(s.score);
+
+		sb.append(" nodes ").append(s.nodes).append(" nps ").append((time == 0) ? 0 : s.nodes * 1000 / time)
+				.append(" time ").append(time).append(" hashfull ").append(tt.hashfull()).append(" tbhits ").append(s.tbHits);
+
+		return sb.append(" pv ").append(Search.toString(s.principalVariation())).toString();
+	}
+
+	public static void main(String args[]) throws IOException {
+
+		Uci uci = new Uci(System.out);
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+
+		String line;
+		while((line = in.readLine()) != null)
+			if(!line.isBlank() && !uci.execute(line))
+				return;
+
+		//the GUI went away
+		uci.execute("quit");
+	}
+}
@@ -0,0 +1,216 @@
+package engine;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.Piece;
+import parts.PieceSquare;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Static evaluation of a position, in centipawns from the point of view of the side to move.
+ *
+ * Material and piece-square values are kept up to date by {@link Board} itself as pieces move, so they cost nothing
+ * here. On top of those come pawn structure, mobility and king safety, which have to look at the whole board. Every
+ * term has a middlegame and an endgame weight, blended by the board's game phase.
+ *
+ * evaluate(b, alpha, beta, pawns) skips the expensive terms when the cheap part is already so far outside the window that
+ * they couldn't bring it back.
+ */
+public class Evaluation {
+
+	//material value of each piece type, the king isn't counted
+	public static final int[] VALUE = PieceSquare.VALUE;
+
+	//the most the expensive terms are expected to move the score either way
+	public static final int LAZY_MARGIN = 350;
+
+	//pawn structure, middlegame and endgame
+	private static final int DOUBLED_MG = -10, DOUBLED_EG = -20;
+	private static final int ISOLATED_MG = -10, ISOLATED_EG = -15;
+	private static final int[] PASSED_MG = {0, 5, 10, 15, 25, 40, 60, 0};
+	private static final int[] PASSED_EG = {0, 10, 20, 35, 60, 100, 150, 0};
+
+	//mobility, per square beyond a typical number of squares for the piece, indexed by type
+	private static final int[] MOBILITY_BASE = {0, 4, 6, 7, 13, 0};
+	private static final int[] MOBILITY_MG = {0, 4, 5, 2, 1, 0};
+	private static final int[] MOBILITY_EG = {0, 4, 5, 4, 2, 0};
+
+	//king safety: how much an attack on a square next to the king counts for each type, and the pawn shield
+	private static final int[] KING_ATTACK = {0, 2, 2, 3, 5, 0};
+	private static final int SHIELD = 10;
+
+	private Evaluation() {
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns how good the position is for the side to move
+	 */
+	public static int evaluate(Board b) {
+		return evaluate(b, -Search.INFINITE, Search.INFINITE, null);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param alpha
+	 * @param beta
+	 * @param pawns
+	 * @return Returns how good the position is for the side to move, exact if it is anywhere near alpha and beta
+	 *
+	 * The pawn structure comes from pawns if it isn't null.
+	 */
+	public static int evaluate(Board b, int alpha, int beta, PawnTable pawns) {
+
+		int sign = (b.turn == 'w') ? 1 : -1;
+		int phase = Math.min(b.phase, PieceSquare.TOTAL_PHASE);
+
+		int score = sign * taper(b.mg_score, b.eg_score, phase);
+
+		if(score + LAZY_MARGIN <= alpha || score - LAZY_MARGIN >= beta)
+			return score;
+
+		int terms = (pawns != null) ? pawns.score(b) : pawns(b, Bitboards.WHITE) - pawns(b, Bitboards.BLACK);
+		terms += pieces(b, Bitboards.WHITE) - pieces(b, Bitboards.BLACK);
+
+		return score + sign * taper(mg(terms), eg(terms), phase);
+	}
+
+	/* The expensive terms return their middlegame and endgame scores packed into one int, so both come out of one
+	 * pass and packed scores can simply be added and subtracted. */
+	static int pack(int mg, int eg) {
+		return (mg << 16) + eg;
+	}
+	static int mg(int packed) {
+		return (packed + 0x8000) >> 16;
+	}
+	static int eg(int packed) {
+		return (short)packed;
+	}
+
+	//blends a middlegame and an endgame score, phase goes from TOTAL_PHASE at the start down to 0
+	private static int taper(int mg, int eg, int phase) {
+		return (mg * phase + eg * (PieceSquare.TOTAL_PHASE - phase)) / PieceSquare.TOTAL_PHASE;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param side
+	 * @return Returns the doubled, isolated and passed pawn terms for side, packed
+	 *
+	 * Only depends on where the pawns are, so PawnTable caches it by the pawn key.
+	 */
+	static int pawns(Board b, int side) {
+
+		long own = b.pieces[side * 6 + Piece.PAWN];
+		long enemy = b.pieces[(side ^ 1) * 6 + Piece.PAWN];
+		int score = 0;
+
+		for(int c = 0; c < 8; c++) {
+			long file = Bitboards.FILE_A << c;
+			int count = Long.bitCount(own & file);
+
+			if(count == 0)
+				continue;
+
+			if(count > 1)
+				score += (count - 1) * pack(DOUBLED_MG, DOUBLED_EG);
+
+			if((own & adjacentFiles(c)) == 0)
+				score += count * pack(ISOLATED_MG, ISOLATED_EG);
+		}
+
+		for(long bb = own; bb != 0; bb &= bb - 1) {
+			int sq = Long.numberOfTrailingZeros(bb);
+
+			//nothing in front of it on its own file or either side can stop it
+			if((enemy & front(side, sq) & ((Bitboards.FILE_A << Bitboards.column(sq)) | adjacentFiles(Bitboards.column(sq)))) == 0) {
+				int rank = (side == Bitboards.WHITE) ? Bitboards.row(sq) : 7 - Bitboards.row(sq);
+				score += pack(PASSED_MG[rank], PASSED_EG[rank]);
+			}
+		}
+
+		return score;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param side
+	 * @return Returns the mobility of side's pieces, how hard they press on the other king, and side's own pawn shield, packed
+	 *
+	 * Both come from the same attack sets, so they're worked out together.
+	 */
+	static int pieces(Board b, int side) {
+
+		int o = side * 6, enemy = side ^ 1;
+		long own = b.occupancy[side];
+		long safe = ~own & ~Bitboards.allPawnAttacks(enemy, b.pieces[enemy * 6 + Piece.PAWN]);
+
+		long king = b.pieces[enemy * 6 + Piece.KING];
+		long zone = (king == 0) ? 0 : Bitboards.kingAttacks(Long.numberOfTrailingZeros(king)) | king;
+
+		int score = 0, attackers = 0, weight = 0;
+
+		for(int type = Piece.KNIGHT; type <= Piece.QUEEN; type++)
+			for(long bb = b.pieces[o + type]; bb != 0; bb &= bb - 1) {
+
+				long attacks = Bitboards.attacks(type, side, Long.numberOfTrailingZeros(bb), b.occupied);
+				int moves = Long.bitCount(attacks & safe) - MOBILITY_BASE[type];
+
+				score += moves * pack(MOBILITY_MG[type], MOBILITY_EG[type]);
+
+				if((attacks & zone) != 0) {
+					attackers++;
+					weight += KING_ATTACK[type] * Long.bitCount(attacks & zone);
+				}
+			}
+
+		//king safety is middlegame only. one attacker can't do much alone, more of them together grow quickly
+		if(attackers >= 2)
+			score += pack(Math.min(weight * weight, 500), 0);
+
+		//pawns right in front of our own king
+		long ours = b.pieces[o + Piece.KING];
+		if(ours != 0) {
+			int sq = Long.numberOfTrailingZeros(ours);
+			int backrow = (side == Bitboards.WHITE) ? 0 : 7;
+
+			if(Bitboards.row(sq) == backrow) {
+				long shield = front(side, sq) & ((Bitboards.FILE_A << Bitboards.column(sq)) | adjacentFiles(Bitboards.column(sq)));
+				shield &= (side == Bitboards.WHITE) ? (Bitboards.RANK_1 << 8 | Bitboards.RANK_1 << 16) : (Bitboards.RANK_8 >>> 8 | Bitboards.RANK_8 >>> 16);
+
+				score += pack(SHIELD * Long.bitCount(shield & b.pieces[o + Piece.PAWN]), 0);
+			}
+		}
+
+		return score;
+	}
+
+	//the files on either side of column c
+	private static long adjacentFiles(int c) {
+		long file = Bitboards.FILE_A << c;
+		return ((file & Bitboards.NOT_A) >>> 1) | ((file & Bitboards.NOT_H) << 1);
+	}
+
+	//every square on the rows ahead of sq, from side's point of view
+	private static long front(int side, int sq) {
+		int r = Bitboards.row(sq);
+
+		if(side == Bitboards.WHITE)
+			return (r == 7) ? 0 : -1L << (8 * (r + 1));
+
+		return (r == 0) ? 0 : -1L >>> (8 * (8 - r));
+	}
+
+	//value of whatever is on a square, 0 if it's empty
+	public static int valueAt(Board b, int sq) {
+		int code = b.mailbox[sq];
+		return (code == Board.EMPTY) ? 0 : VALUE[code % 6];
+	}
+}
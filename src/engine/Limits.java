@@ -0,0 +1,76 @@
+package engine;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * How long a search is allowed to run. Anything left at 0 doesn't limit the search.
+ *
+ * The time can be given straight as movetime, or as what is left on each side's clock (plus the increment and the
+ * moves left until the next time control), in which case timeFor works out how much of it to spend on this move.
+ */
+public class Limits {
+
+	public int depth = 0;
+	public long nodes = 0;
+	public long movetime = 0;
+
+	//clocks, in milliseconds
+	public long wtime = 0, btime = 0;
+	public long winc = 0, binc = 0;
+	public int movestogo = 0;
+
+	//no time limit at all whatever the clocks say, until the search is stopped
+	public boolean infinite = false;
+
+	//moves to plan for when the clock doesn't say how many are left
+	private static final int MOVES_LEFT = 30;
+
+	//never planned to be used up, for the time it takes the answer to get back to the clock
+	private static final long OVERHEAD = 30;
+
+	/**
+	 *
+	 * @param turn
+	 * @return Returns how many milliseconds the side to move should think for, or 0 for no time limit
+	 *
+	 * An even share of what is left on the clock over the moves to go, plus most of the increment, and never so
+	 * much that the clock could run out.
+	 */
+	public long timeFor(char turn) {
+
+		if(infinite)
+			return 0;
+		if(movetime > 0)
+			return movetime;
+
+		long time = (turn == 'w') ? wtime : btime;
+		long inc = (turn == 'w') ? winc : binc;
+		if(time <= 0)
+			return 0;
+
+		int moves = (movestogo > 0) ? Math.min(movestogo, MOVES_LEFT) : MOVES_LEFT;
+		long share = time / moves + inc * 3 / 4;
+
+		return Math.max(1, Math.min(share, time - Math.min(OVERHEAD, time / 2)));
+	}
+
+	public static Limits depth(int depth) {
+		Limits l = new Limits();
+		l.depth = depth;
+		return l;
+	}
+
+	public static Limits nodes(long nodes) {
+		Limits l = new Limits();
+		l.nodes = nodes;
+		return l;
+	}
+
+	public static Limits movetime(long millis) {
+		Limits l = new Limits();
+		l.movetime = millis;
+		return l;
+	}
+}
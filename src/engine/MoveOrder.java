@@ -0,0 +1,246 @@
+package engine;
+
+import java.util.Arrays;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.Move;
+import parts.Piece;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Decides what order the search tries moves in. Alpha-beta cuts off as soon as a move is good enough, so the sooner
+ * the best move comes up the fewer nodes a search needs.
+ *
+ * Every move gets a score, in bands: the transposition table's move first, then captures and promotions by most
+ * valuable victim and least valuable attacker (MVV-LVA), then the two killers of the ply (quiet moves that cut off
+ * in a sibling), then the countermove (the quiet move that last cut off right after the opponent's previous move),
+ * then the rest of the quiet moves by their history, how often they cut off before at any depth.
+ *
+ * The moves aren't sorted. next picks the best one left each time, so when the first move or two cut off, as they
+ * mostly do, nothing is spent ordering the rest.
+ *
+ * Not thread safe, every search thread keeps its own.
+ */
+public class MoveOrder {
+
+	//bands, each above everything in the ones after it
+	private static final int TT_MOVE = 1 << 30;
+	private static final int TACTICAL = 1 << 28;
+	private static final int KILLER = 1 << 27;
+	private static final int COUNTER = KILLER - 2;
+
+	//captures that lose material by static exchange go after every quiet move
+	private static final int LOSING = -(1 << 20);
+
+	//history scores stay between -HISTORY_MAX and HISTORY_MAX
+	private static final int HISTORY_MAX = 1 << 14;
+
+	//what a quiet move left out of quiescence scores, next stops at it
+	private static final int SKIP = Integer.MIN_VALUE;
+
+	//scores alongside the search's move buffer, same index for the same move
+	private final int[] scores;
+
+	//two per ply, the newest first
+	private final int[] killers = new int[2 * (Search.MAX_PLY + 1)];
+
+	//[side][from][to] "butterfly" table of quiet move cutoffs
+	private final int[] history = new int[2 * 64 * 64];
+
+	//[piece][to] of the move before, the quiet move that refuted it
+	private final int[] counters = new int[12 * 64];
+
+	//instrumentation
+	public long cutoffs, firstCutoffs;
+
+	public MoveOrder(int size) {
+		scores = new int[size];
+	}
+
+	/**
+	 * Gets ready for a new search. Killers belong to the last position so they go, and history is halved so it
+	 * follows the new position without forgetting everything.
+	 */
+	public void newSearch() {
+		Arrays.fill(killers, Move.NONE);
+
+		for(int i = 0; i < history.length; i++)
+			history[i] /= 2;
+
+		cutoffs = firstCutoffs = 0;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param moves
+	 * @param start
+	 * @param end
+	 * @param ttMove
+	 * @param ply
+	 *
+	 * Scores moves[start..end) for the position on b, ply plies from the root
+	 */
+	public void score(Board b, int[] moves, int start, int end, int ttMove, int ply) {
+
+		int side = Bitboards.side(b.turn);
+		int k0 = killers[2 * ply], k1 = killers[2 * ply + 1];
+		int counter = countermove(b);
+
+		for(int i = start; i < end; i++) {
+
+			int move = moves[i];
+
+			if(move == ttMove)
+				scores[i] = TT_MOVE;
+			else if(Move.isCapture(move) || Move.promotion(move) != 0)
+				scores[i] = tactical(b, move);
+			else if(move == k0)
+				scores[i] = KILLER;
+			else if(move == k1)
+				scores[i] = KILLER - 1;
+			else if(move == counter)
+				scores[i] = COUNTER;
+			else
+				scores[i] = history[butterfly(side, move)];
+		}
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param moves
+	 * @param start
+	 * @param end
+	 *
+	 * Scores only the captures and promotions, for quiescence. next gives Move.NONE once they have all been picked.
+	 */
+	public void scoreTactical(Board b, int[] moves, int start, int end) {
+
+		for(int i = start; i < end; i++) {
+			int move = moves[i];
+			scores[i] = (Move.isCapture(move) || Move.promotion(move) != 0) ? tactical(b, move) : SKIP;
+		}
+	}
+
+	/**
+	 *
+	 * @param moves
+	 * @param i
+	 * @param end
+	 * @return Returns the best scored move of moves[i..end), swapped to i, or Move.NONE if only skipped ones are left
+	 */
+	public int next(int[] moves, int i, int end) {
+
+		int best = i;
+		for(int j = i + 1; j < end; j++)
+			if(scores[j] > scores[best])
+				best = j;
+
+		if(scores[best] == SKIP)
+			return Move.NONE;
+
+		if(best != i) {
+			int m = moves[i];
+			moves[i] = moves[best];
+			moves[best] = m;
+
+			int s = scores[i];
+			scores[i] = scores[best];
+			scores[best] = s;
+		}
+
+		return moves[i];
+	}
+
+	//true if the move picked at i is a capture or promotion that loses material
+	public boolean losing(int i) {
+		return scores[i] >= LOSING && scores[i] < LOSING + HISTORY_MAX;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param moves
+	 * @param start
+	 * @param i
+	 * @param ply
+	 * @param depth
+	 *
+	 * moves[i] was good enough for a cutoff, after moves[start..i) were tried. A quiet one becomes a killer and the
+	 * countermove to the move before, and gains history, while the quiet moves tried before it lose some.
+	 */
+	public void cutoff(Board b, int[] moves, int start, int i, int ply, int depth) {
+
+		cutoffs++;
+		if(i == start)
+			firstCutoffs++;
+
+		int move = moves[i];
+		if(Move.isCapture(move) || Move.promotion(move) != 0)
+			return;
+
+		if(killers[2 * ply] != move) {
+			killers[2 * ply + 1] = killers[2 * ply];
+			killers[2 * ply] = move;
+		}
+
+		int last = b.lastMove();
+		if(last != Move.NONE)
+			counters[b.mailbox[Move.to(last)] * 64 + Move.to(last)] = move;
+
+		int side = Bitboards.side(b.turn);
+		int bonus = Math.min(depth * depth, 400);
+
+		update(butterfly(side, move), bonus);
+
+		for(int j = start; j < i; j++)
+			if(!Move.isCapture(moves[j]) && Move.promotion(moves[j]) == 0)
+				update(butterfly(side, moves[j]), -bonus);
+	}
+
+	//moves the entry toward the bonus by less the closer it already is to the limit, so it never gets past it
+	private void update(int i, int bonus) {
+		history[i] += bonus - history[i] * Math.abs(bonus) / HISTORY_MAX;
+	}
+
+	private static int butterfly(int side, int move) {
+		return (side << 12) | (Move.from(move) << 6) | Move.to(move);
+	}
+
+	//the move that last refuted the opponent's previous move, or Move.NONE
+	private int countermove(Board b) {
+		int last = b.lastMove();
+		return (last == Move.NONE) ? Move.NONE : counters[b.mailbox[Move.to(last)] * 64 + Move.to(last)];
+	}
+
+	//a capture or promotion, in its band by whether it wins material and by MVV-LVA inside that
+	private static int tactical(Board b, int move) {
+
+		//taking something worth at least the piece taking it can't lose material, no need for the exchange
+		int attacker = b.mailbox[Move.from(move)] % 6;
+		int victim = Move.isEnPassant(move) ? Piece.PAWN : b.mailbox[Move.to(move)];
+
+		if(victim != Board.EMPTY && Board.SEE_VALUE[victim % 6] >= Board.SEE_VALUE[attacker])
+			return TACTICAL + mvvLva(b, move);
+
+		return (b.see(move) >= 0) ? TACTICAL + mvvLva(b, move) : LOSING + mvvLva(b, move);
+	}
+
+	//most valuable victim first and least valuable attacker among those, a promotion counts as taking its new piece
+	private static int mvvLva(Board b, int move) {
+
+		int victim = Move.isEnPassant(move) ? Piece.PAWN : (b.mailbox[Move.to(move)] == Board.EMPTY) ? -1 : b.mailbox[Move.to(move)] % 6;
+		int gain = (victim + 1) + ((Move.promotion(move) != 0) ? Move.promotion(move) : 0);
+
+		return gain * 8 - b.mailbox[Move.from(move)] % 6;
+	}
+
+	public String stats() {
+		return "cutoffs " + cutoffs + ", on the first move " + ((cutoffs == 0) ? 0 : Math.round(firstCutoffs * 1000.0 / cutoffs) / 10.0) + "%";
+	}
+}
@@ -0,0 +1,178 @@
+package engine;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import parts.Board;
+import parts.Move;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Runs a {@link Search} on several threads at once using Lazy SMP.
+ *
+ * Every thread has its own board, loaded with the position at the start of each search, and they all share one
+ * transposition table. The threads and their searches last from one move to the next, so each keeps its move
+ * ordering and pawn table. The helpers don't talk to each other at all, they just fill the table with results the
+ * others can use, and some of them skip depths so they don't all work on the same thing. The answer is whatever
+ * the main thread finds, and the helpers are stopped as soon as it is done.
+ */
+public class ParallelSearch {
+
+	private final Search[] workers;
+	private final Board[] boards;
+	private final ExecutorService pool;
+	private volatile boolean stopping;
+
+	//handed to every worker
+	public Tablebase tablebase;
+
+	public ParallelSearch(TranspositionTable tt, int threads) {
+		this.workers = new Search[Math.max(1, threads)];
+		this.boards = new Board[workers.length];
+
+		for(int i = 0; i < workers.length; i++) {
+			boards[i] = Board.blankBoard();
+			workers[i] = new Search(boards[i], tt);
+			workers[i].id = i;
+		}
+
+		//helpers are daemons so a forgotten search never keeps the program running
+		this.pool = Executors.newFixedThreadPool(Math.max(1, threads - 1), r -> {
+			Thread t = new Thread(r, "search-helper");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 *
+	 * @param board
+	 * @param limits
+	 * @return Returns the best move the main thread found
+	 *
+	 * board itself isn't touched, every thread searches its own board loaded from it
+	 */
+	public int think(Board board, Limits limits) {
+
+		stopping = false;
+
+		for(int i = 0; i < workers.length; i++) {
+			boards[i].copyFrom(board);
+			workers[i].tablebase = tablebase;
+			workers[i].start(limits);
+		}
+
+		//a stop that came in while the workers were being set up
+		if(stopping)
+			stop();
+
+		Future<?>[] helpers = new Future<?>[workers.length];
+		for(int i = 1; i < workers.length; i++) {
+			Search helper = workers[i];
+			helpers[i] = pool.submit(() -> helper.run(limits));
+		}
+
+		int move = workers[0].run(limits);
+
+		for(int i = 1; i < workers.length; i++)
+			workers[i].stop();
+
+		for(int i = 1; i < workers.length; i++) {
+			try {
+				helpers[i].get();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch(ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		return move;
+	}
+
+	//stops every thread, safe to call from another thread
+	public void stop() {
+		stopping = true;
+
+		for(Search s: workers)
+			s.stop();
+	}
+
+	//the main thread's search, for its score, depth and principal variation
+	public Search main() {
+		return workers[0];
+	}
+
+	public int threads() {
+		return workers.length;
+	}
+
+	//nodes searched by all threads together in the last search
+	public long nodes() {
+		long n = 0;
+
+		for(Search s: workers)
+			n += s.nodes;
+
+		return n;
+	}
+
+	//nodes per second of all threads together, over the main thread's time
+	public long nps() {
+		long time = workers[0].time;
+		return (time == 0) ? 0 : nodes() * 1000000000L / time;
+	}
+
+	//one line per thread with its nodes and nodes per second, then the total
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+
+		for(int i = 0; i < workers.length; i++) {
+			Search s = workers[i];
+			long nps = (s.time == 0) ? 0 : s.nodes * 1000000000L / s.time;
+
+			sb.append("thread ").append(i).append(": depth ").append(s.completedDepth)
+					.append(", nodes ").append(s.nodes).append(", nps ").append(nps)
+					.append(", pawn hits ").append(Math.round(s.pawns.hitRate() * 1000) / 10.0).append("%\n");
+		}
+
+		sb.append("total: nodes ").append(nodes()).append(", nps ").append(nps());
+		return sb.toString();
+	}
+
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Usage: java engine.ParallelSearch [threads] [milliseconds] [fen]
+	 */
+	public static void main(String args[]) {
+
+		int threads = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		long millis = (args.length > 1) ? Long.parseLong(args[1]) : 1000;
+
+		String fen = "";
+		for(int i = 2; i < args.length; i++)
+			fen += args[i] + " ";
+
+		Board board = fen.isEmpty() ? new Board() : Board.fromFen(fen);
+		TranspositionTable tt = new TranspositionTable(256);
+		ParallelSearch search = new ParallelSearch(tt, threads);
+
+		int move = search.think(board, Limits.movetime(millis));
+
+		System.out.println("bestmove " + Move.toString(move));
+		System.out.println("score " + search.main().score + " depth " + search.main().completedDepth);
+		System.out.println("pv " + Search.toString(search.main().principalVariation()));
+		System.out.println(search.report());
+		System.out.println("tt " + tt.stats());
+
+		search.shutdown();
+	}
+}
@@ -0,0 +1,82 @@
+package engine;
+
+import parts.Bitboards;
+import parts.Board;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * A small cache of pawn structure scores, looked up by the board's pawn key.
+ *
+ * Pawns move far less often than everything else, so during a search the same pawn structure comes up over and
+ * over and its doubled, isolated and passed pawn terms only need working out once. Each entry is one slot in two
+ * plain arrays, a new structure simply replaces whatever was there.
+ *
+ * Not thread safe, every search thread keeps its own.
+ */
+public class PawnTable {
+
+	private final long[] keys;
+	private final int[] scores;
+	private final int mask;
+
+	//instrumentation
+	public long probes, hits;
+
+	/**
+	 *
+	 * @param entries
+	 *
+	 * Makes a table of at least one entry, rounded down to a power of two
+	 */
+	public PawnTable(int entries) {
+		int size = Integer.highestOneBit(Math.max(1, entries));
+
+		keys = new long[size];
+		scores = new int[size];
+		mask = size - 1;
+	}
+	public PawnTable() {
+		this(1 << 14);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns the packed middlegame and endgame pawn structure score from white's side, see Evaluation.pawns
+	 *
+	 * An empty slot has key 0 and score 0, which is also the right answer for a board with no pawns (key 0), so no
+	 * separate flag is needed.
+	 */
+	public int score(Board b) {
+
+		probes++;
+		int i = (int)b.pawn_key & mask;
+
+		if(keys[i] == b.pawn_key) {
+			hits++;
+			return scores[i];
+		}
+
+		int s = Evaluation.pawns(b, Bitboards.WHITE) - Evaluation.pawns(b, Bitboards.BLACK);
+
+		keys[i] = b.pawn_key;
+		scores[i] = s;
+
+		return s;
+	}
+
+	public void resetCounters() {
+		probes = hits = 0;
+	}
+
+	public double hitRate() {
+		return (probes == 0) ? 0 : (double)hits / probes;
+	}
+
+	public String stats() {
+		return "probes " + probes + ", hits " + hits + " (" + Math.round(hitRate() * 1000) / 10.0 + "%)";
+	}
+}
@@ -0,0 +1,493 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.Move;
+import parts.MoveGenerator;
+import parts.Position;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Finds the best move on a board with a negamax alpha-beta search.
+ *
+ * The search deepens one ply at a time, starting each iteration from a narrow window around the last score and
+ * widening it if the score falls outside. It stops when the depth, node or time limit is reached (or stop() is
+ * called), and answers with the best move and principal variation of the deepest iteration it finished.
+ *
+ * Moves are made and unmade on the board passed in, which is back where it started once think returns.
+ *
+ * With a tablebase set, positions it has are scored from it instead of being searched, and a root position it has
+ * is answered with its best move straight away.
+ */
+public class Search {
+
+	public static final int INFINITE = 32000;
+	public static final int MATE = 31000;
+	public static final int MAX_PLY = 128;
+
+	//scores past this are mates, and count the plies to the mate
+	public static final int MATE_BOUND = MATE - MAX_PLY;
+
+	private static final int ASPIRATION = 35;
+
+	private final Board board;
+	private final TranspositionTable tt;
+
+	//pawn structure scores, one table per search thread
+	public final PawnTable pawns = new PawnTable();
+
+	//one move buffer for the whole search, each ply writes past the moves of the ply before
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES * (MAX_PLY + 1)];
+
+	//killers, history and countermoves, kept from one search to the next
+	public final MoveOrder order = new MoveOrder(moves.length);
+
+	//triangular principal variation table
+	private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final int[] pvLength = new int[MAX_PLY + 1];
+
+	private long maxNodes, startTime;
+	private volatile long deadline;
+	private volatile boolean stopped;
+
+	//told about every finished iteration, on the searching thread, if set
+	public Consumer<Search> listener;
+
+	//endgame tables to score small positions from, if set
+	public Tablebase tablebase;
+
+	//scratch for tablebase probes, a square for every piece
+	private final int[] tbSquares = new int[Position.MAX_PIECES];
+
+	//0 for the main thread of a search, helpers in a parallel search count up from 1
+	int id = 0;
+
+	//results
+	public long nodes;
+	public long tbHits;
+	public long time;
+	public int bestMove;
+	public int score;
+	public int completedDepth;
+	private int[] bestLine = new int[0];
+
+	public Search(Board board, TranspositionTable tt) {
+		this.board = board;
+		this.tt = tt;
+	}
+
+	/**
+	 *
+	 * @param limits
+	 * @return Returns the best move found, or Move.NONE if there are no legal moves
+	 */
+	public int think(Limits limits) {
+		start(limits);
+		return run(limits);
+	}
+
+	/**
+	 *
+	 * @param limits
+	 *
+	 * Starts the clock and sets the limits for a search that run will do, and clears any earlier stop.
+	 *
+	 * When the search runs on another thread, calling this first on the thread that may stop it means a stop() or
+	 * setTimeLimit() that lands before the other thread gets going still counts.
+	 */
+	public void start(Limits limits) {
+
+		startTime = System.nanoTime();
+		maxNodes = (limits.nodes > 0) ? limits.nodes : Long.MAX_VALUE;
+		setTimeLimit(limits.timeFor(board.turn));
+		stopped = false;
+	}
+
+	/**
+	 *
+	 * @param limits
+	 * @return Returns the best move found, or Move.NONE if there are no legal moves
+	 *
+	 * Searches to the limits set by start, which has to come first.
+	 */
+	public int run(Limits limits) {
+
+		int maxDepth = (limits.depth > 0) ? Math.min(limits.depth, MAX_PLY - 1) : MAX_PLY - 1;
+
+		nodes = 0;
+		tbHits = 0;
+		pawns.resetCounters();
+		order.newSearch();
+		bestMove = Move.NONE;
+		score = 0;
+		completedDepth = 0;
+		bestLine = new int[0];
+
+		//nothing to search if the tables know the answer
+		if(tablebase != null && Long.bitCount(board.occupied) <= tablebase.maxPieces) {
+			int move = tablebase.bestMove(board);
+
+			if(move != Move.NONE) {
+				tbHits++;
+				bestMove = move;
+				bestLine = new int[] {move};
+				score = tablebaseScore(tablebase.probe(board, tbSquares), 0);
+				completedDepth = 1;
+
+				if(listener != null)
+					listener.accept(this);
+
+				time = elapsed();
+				return bestMove;
+			}
+		}
+
+		//helpers share the main thread's table and search, so only the main thread starts a new generation
+		if(id == 0)
+			tt.newSearch();
+
+		for(int depth = 1; depth <= maxDepth; depth++) {
+
+			//half the helpers skip every other depth, so the threads spread out over different depths
+			if(id > 0 && depth > 1 && (id & 1) == 1 && (depth & 1) == 0)
+				continue;
+
+			int s = aspiration(depth, score);
+
+			//a stopped iteration can't be trusted, keep the last finished one
+			if(stopped)
+				break;
+
+			score = s;
+			completedDepth = depth;
+
+			if(pvLength[0] > 0) {
+				bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+				bestMove = bestLine[0];
+			}
+
+			if(listener != null)
+				listener.accept(this);
+
+			//no point looking deeper once a forced mate is found
+			if(Math.abs(score) >= MATE_BOUND && depth > 1)
+				break;
+		}
+
+		//if even depth 1 was cut off, fall back to any legal move
+		if(bestMove == Move.NONE) {
+			int n = MoveGenerator.legal(board, Bitboards.side(board.turn), moves, 0);
+			if(n > 0)
+				bestMove = moves[0];
+		}
+
+		time = elapsed();
+		return bestMove;
+	}
+
+	//searches with a window around the last score, widening whichever side it fails on
+	private int aspiration(int depth, int guess) {
+
+		if(depth < 4 || Math.abs(guess) >= MATE_BOUND)
+			return negamax(depth, -INFINITE, INFINITE, 0, 0);
+
+		int delta = ASPIRATION;
+		int alpha = guess - delta, beta = guess + delta;
+
+		while(true) {
+
+			int s = negamax(depth, alpha, beta, 0, 0);
+
+			if(stopped)
+				return s;
+
+			if(s <= alpha)
+				alpha = Math.max(-INFINITE, alpha - delta);
+			else if(s >= beta)
+				beta = Math.min(INFINITE, beta + delta);
+			else
+				return s;
+
+			delta *= 2;
+		}
+	}
+
+	//tells the search to finish as soon as it can, safe to call from another thread
+	public void stop() {
+		stopped = true;
+	}
+
+	public boolean stopped() {
+		return stopped;
+	}
+
+	/**
+	 *
+	 * @param millis
+	 *
+	 * Gives the search millis milliseconds from now, or no time limit if millis is 0. Safe to call from another
+	 * thread while it runs, which is how a search started without a time limit (pondering) gets one later.
+	 */
+	public void setTimeLimit(long millis) {
+		deadline = (millis > 0) ? System.nanoTime() + millis * 1000000L : Long.MAX_VALUE;
+	}
+
+	//nanoseconds since the search was started
+	public long elapsed() {
+		return System.nanoTime() - startTime;
+	}
+
+	//the principal variation of the deepest finished iteration
+	public int[] principalVariation() {
+		return bestLine;
+	}
+
+	private void checkLimits() {
+		if(nodes >= maxNodes || System.nanoTime() >= deadline)
+			stopped = true;
+	}
+
+	/**
+	 *
+	 * @param depth
+	 * @param alpha
+	 * @param beta
+	 * @param ply
+	 * @param start
+	 * @return Returns the score of the position for the side to move, within alpha and beta
+	 */
+	private int negamax(int depth, int alpha, int beta, int ply, int start) {
+
+		pvLength[ply] = 0;
+
+		if((nodes & 1023) == 0)
+			checkLimits();
+		if(stopped)
+			return 0;
+
+		if(ply > 0 && (board.halfmove_clock >= 100 || board.isRepeated()))
+			return 0;
+
+		if(ply > 0 && tablebase != null && Long.bitCount(board.occupied) <= tablebase.maxPieces) {
+			int v = tablebase.probe(board, tbSquares);
+
+			if(v != Tablebase.UNKNOWN) {
+				tbHits++;
+				return tablebaseScore(v, ply);
+			}
+		}
+
+		int side = Bitboards.side(board.turn);
+		boolean inCheck = board.inCheck(board.turn);
+
+		//don't stop searching in the middle of a check
+		if(inCheck)
+			depth++;
+
+		if(depth <= 0 || ply >= MAX_PLY)
+			return quiesce(alpha, beta, ply, start);
+
+		nodes++;
+
+		//transposition table
+		long entry = tt.probe(board.key);
+		int ttMove = Move.NONE;
+
+		if(entry != 0) {
+			ttMove = TranspositionTable.move(entry);
+
+			if(ply > 0 && TranspositionTable.depth(entry) >= depth) {
+				int s = fromTT(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+
+				if(bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && s >= beta)
+						|| (bound == TranspositionTable.UPPER && s <= alpha))
+					return s;
+			}
+		}
+
+		int end = MoveGenerator.pseudoLegal(board, side, moves, start);
+		order.score(board, moves, start, end, ttMove, ply);
+
+		int best = -INFINITE, bestHere = Move.NONE, legal = 0;
+		int oldAlpha = alpha;
+
+		for(int i = start; i < end; i++) {
+
+			int move = order.next(moves, i, end);
+			board.makeMove(move);
+
+			if(board.inCheck(Bitboards.color(side))) {
+				board.unmakeMove();
+				continue;
+			}
+
+			legal++;
+			int s = -negamax(depth - 1, -beta, -alpha, ply + 1, end);
+			board.unmakeMove();
+
+			if(stopped)
+				return 0;
+
+			if(s > best) {
+				best = s;
+				bestHere = move;
+
+				if(s > alpha) {
+					alpha = s;
+					updatePV(ply, move);
+
+					if(alpha >= beta) {
+						order.cutoff(board, moves, start, i, ply, depth);
+						break;
+					}
+				}
+			}
+		}
+
+		if(legal == 0)
+			return inCheck ? -MATE + ply : 0;
+
+		int bound = (best >= beta) ? TranspositionTable.LOWER : (best > oldAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		tt.store(board.key, bestHere, toTT(best, ply), depth, bound);
+
+		return best;
+	}
+
+	//only looks at captures and promotions, until the position is quiet
+	private int quiesce(int alpha, int beta, int ply, int start) {
+
+		pvLength[ply] = 0;
+
+		if((nodes & 1023) == 0)
+			checkLimits();
+		if(stopped)
+			return 0;
+
+		nodes++;
+
+		int standpat = Evaluation.evaluate(board, alpha, beta, pawns);
+
+		if(ply >= MAX_PLY || standpat >= beta)
+			return standpat;
+		if(standpat > alpha)
+			alpha = standpat;
+
+		int side = Bitboards.side(board.turn);
+		int end = MoveGenerator.pseudoLegal(board, side, moves, start);
+		order.scoreTactical(board, moves, start, end);
+
+		for(int i = start; i < end; i++) {
+
+			//only captures and promotions, the quiet moves are left out
+			int move = order.next(moves, i, end);
+			if(move == Move.NONE)
+				break;
+
+			//captures that lose material can't raise alpha here
+			if(order.losing(i))
+				continue;
+
+			board.makeMove(move);
+
+			if(board.inCheck(Bitboards.color(side))) {
+				board.unmakeMove();
+				continue;
+			}
+
+			int s = -quiesce(-beta, -alpha, ply + 1, end);
+			board.unmakeMove();
+
+			if(stopped)
+				return 0;
+
+			if(s >= beta)
+				return s;
+			if(s > alpha)
+				alpha = s;
+		}
+
+		return alpha;
+	}
+
+	private void updatePV(int ply, int move) {
+		pv[ply][0] = move;
+		System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+		pvLength[ply] = pvLength[ply + 1] + 1;
+	}
+
+	//a tablebase value as a score, mates counted from the root like the ones the search finds. Mates further than
+	//the search could see are kept at MATE_BOUND, so they are still taken for mates.
+	private static int tablebaseScore(int v, int ply) {
+		if(v > 0)
+			return Math.max(MATE - ply - Tablebase.plies(v), MATE_BOUND);
+		if(v < 0)
+			return Math.min(-MATE + ply + Tablebase.plies(v), -MATE_BOUND);
+		return 0;
+	}
+
+	//mate scores are stored relative to the node, so they stay right wherever the position turns up again
+	private static int toTT(int s, int ply) {
+		if(s >= MATE_BOUND)
+			return s + ply;
+		if(s <= -MATE_BOUND)
+			return s - ply;
+		return s;
+	}
+	private static int fromTT(int s, int ply) {
+		if(s >= MATE_BOUND)
+			return s - ply;
+		if(s <= -MATE_BOUND)
+			return s + ply;
+		return s;
+	}
+
+	//the principal variation as text, like "e2e4 e7e5 g1f3"
+	public static String toString(int[] line) {
+		StringBuilder sb = new StringBuilder();
+
+		for(int move: line) {
+			if(sb.length() > 0)
+				sb.append(' ');
+			sb.append(Move.toString(move));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Usage: java engine.Search [milliseconds] [fen]
+	 *
+	 * Searches the starting position or the given FEN and prints the best move and principal variation.
+	 */
+	public static void main(String args[]) {
+
+		long millis = (args.length > 0) ? Long.parseLong(args[0]) : 1000;
+
+		String fen = "";
+		for(int i = 1; i < args.length; i++)
+			fen += args[i] + " ";
+
+		Board board = fen.isEmpty() ? new Board() : Board.fromFen(fen);
+		Search search = new Search(board, new TranspositionTable(64));
+
+		long time = System.nanoTime();
+		int move = search.think(Limits.movetime(millis));
+		time = System.nanoTime() - time;
+
+		System.out.println("bestmove " + Move.toString(move));
+		System.out.println("score " + search.score + " depth " + search.completedDepth + " nodes " + search.nodes
+				+ " nps " + (time == 0 ? 0 : search.nodes * 1000000000L / time));
+		System.out.println("pv " + toString(search.principalVariation()));
+		System.out.println("tt " + search.tt.stats());
+		System.out.println("pawns " + search.pawns.stats());
+		System.out.println("order " + search.order.stats());
+	}
+}
@@ -0,0 +1,510 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.Move;
+import parts.MoveGenerator;
+import parts.Piece;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Endgame tablebases: for every position of a small set of material, whether the side to move wins, draws or loses,
+ * and in how many moves it mates or gets mated. They are made by {@link TablebaseGenerator}.
+ *
+ * A table is one byte per position, in a file named after its material like "KRK.tb" or "KBNK.tb", and the position
+ * is simply its offset in the file, so a probe is one read from a memory mapped file. The byte is 0 for a draw, n for
+ * mate in n moves and -n for getting mated in n - 1 moves, so -1 is already mated. A mate further away than a byte can
+ * say is stored as WON or LOST, mate in 127 moves or more and getting mated in 126 or more.
+ *
+ * The side with more material is always white in a table, a position where black has it is looked up with the
+ * colors swapped and the board turned upside down. The white king is folded onto the a-d files (and onto the a1-d1-d4
+ * triangle when there are no pawns) by mirroring the whole board. Positions with castling rights or an en passant
+ * capture aren't in any table, and the fifty-move rule is ignored.
+ */
+public class Tablebase {
+
+	//what probe gives for a position that isn't in any table
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	//stored for positions that can't come up in a game
+	public static final byte ILLEGAL = Byte.MIN_VALUE;
+
+	//the longest mates stored, anything further away is stored as one of these too
+	public static final byte WON = Byte.MAX_VALUE, LOST = Byte.MIN_VALUE + 1;
+
+	//the most plies to mate a value gives exactly, plies(WON)
+	public static final int LONGEST = 2 * WON - 1;
+
+	public static final String EXTENSION = ".tb";
+
+	//the order pieces are written in names, strongest first
+	static final String LETTERS = "QRBNP";
+	private static final int[] TYPES = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT, Piece.PAWN};
+	private static final int[] VALUES = {9, 5, 3, 3, 1};
+
+	//squares the white king is folded onto, with and without pawns
+	private static final int[] TRIANGLE = {0, 1, 2, 3, 9, 10, 11, 18, 19, 27};
+	private static final int[] HALF = new int[32];
+	private static final int[] TRIANGLE_INDEX = new int[64], HALF_INDEX = new int[64];
+
+	static {
+		Arrays.fill(TRIANGLE_INDEX, -1);
+		Arrays.fill(HALF_INDEX, -1);
+
+		for(int i = 0; i < TRIANGLE.length; i++)
+			TRIANGLE_INDEX[TRIANGLE[i]] = i;
+
+		for(int r = 0, i = 0; r < 8; r++)
+			for(int c = 0; c < 4; c++, i++) {
+				HALF[i] = Bitboards.square(c, r);
+				HALF_INDEX[HALF[i]] = i;
+			}
+	}
+
+	/* One set of material: the kind and color of the piece in each slot, and how positions are numbered.
+	 * Slot 0 is the white king, slot 1 the black king, then white's other pieces and then black's, strongest first. */
+	public static final class Material {
+
+		public final String name;
+		public final int pieces;
+		final int[] colors, types;
+		final boolean pawns;
+		final int[] kingSquares, kingIndex;
+
+		//positions with one side to move, and with either
+		final long perSide;
+		public final long size;
+
+		private Material(String white, String black) {
+
+			name = "K" + white + "K" + black;
+			pieces = name.length();
+			colors = new int[pieces];
+			types = new int[pieces];
+
+			colors[0] = Bitboards.WHITE;
+			types[0] = Piece.KING;
+			colors[1] = Bitboards.BLACK;
+			types[1] = Piece.KING;
+
+			for(int i = 0; i < white.length(); i++) {
+				colors[2 + i] = Bitboards.WHITE;
+				types[2 + i] = TYPES[LETTERS.indexOf(white.charAt(i))];
+			}
+			for(int i = 0; i < black.length(); i++) {
+				colors[2 + white.length() + i] = Bitboards.BLACK;
+				types[2 + white.length() + i] = TYPES[LETTERS.indexOf(black.charAt(i))];
+			}
+
+			pawns = name.indexOf('P') >= 0;
+			kingSquares = pawns ? HALF : TRIANGLE;
+			kingIndex = pawns ? HALF_INDEX : TRIANGLE_INDEX;
+
+			long n = kingSquares.length;
+			for(int i = 1; i < pieces; i++)
+				n *= 64;
+
+			perSide = n;
+			size = 2 * n;
+		}
+
+		/**
+		 *
+		 * @param name
+		 * @return Returns the material written like "KRK", "KBNK" or "KQvKR", in any order and with either side first
+		 */
+		public static Material of(String name) {
+
+			name = name.replace("v", "").toUpperCase();
+			int second = name.indexOf('K', 1);
+
+			if(!name.startsWith("K") || second < 0)
+				throw new IllegalArgumentException("not a material like KRK: " + name);
+
+			String white = sort(name.substring(1, second)), black = sort(name.substring(second + 1));
+			if(!(white + black).matches("[QRBNP]*"))
+				throw new IllegalArgumentException("not a material like KRK: " + name);
+
+			return stronger(black, white) ? new Material(black, white) : new Material(white, black);
+		}
+
+		/**
+		 *
+		 * @param sq
+		 * @param side
+		 * @return Returns the number of the position with the piece in each slot on sq[slot] and side to move
+		 *
+		 * The white king doesn't have to be on one of the folded squares, the board is mirrored until it is.
+		 */
+		public long index(int[] sq, int side) {
+
+			int t = transform(sq[0]);
+			long index = side * kingSquares.length + kingIndex[apply(t, sq[0])];
+
+			for(int i = 1; i < pieces; i++)
+				index = index * 64 + apply(t, sq[i]);
+
+			return index;
+		}
+
+		/**
+		 *
+		 * @param index
+		 * @param sq
+		 * @return Returns the side to move in a position, and puts the square of each slot in sq
+		 */
+		public int decode(long index, int[] sq) {
+
+			for(int i = pieces - 1; i > 0; i--) {
+				sq[i] = (int)(index & 63);
+				index >>>= 6;
+			}
+
+			sq[0] = kingSquares[(int)(index % kingSquares.length)];
+			return (int)(index / kingSquares.length);
+		}
+
+		/**
+		 *
+		 * @param flip
+		 * @return Returns the signature (see Tablebase.signature) of positions with this material, or with the colors
+		 * swapped if flip
+		 */
+		int signature(boolean flip) {
+
+			int sig = 0;
+			for(int i = 2; i < pieces; i++)
+				sig += 1 << field(colors[i] ^ (flip ? 1 : 0), types[i]);
+
+			return sig;
+		}
+
+		//which mirrorings bring the white king onto its folded squares: 1 flips the files, 2 the rows, 4 the diagonal
+		private int transform(int king) {
+
+			int t = 0;
+			if(Bitboards.column(king) > 3) {
+				t |= 1;
+				king ^= 7;
+			}
+
+			if(!pawns) {
+				if(Bitboards.row(king) > 3) {
+					t |= 2;
+					king ^= 56;
+				}
+				if(Bitboards.row(king) > Bitboards.column(king))
+					t |= 4;
+			}
+
+			return t;
+		}
+
+		private static int apply(int t, int sq) {
+			if((t & 1) != 0)
+				sq ^= 7;
+			if((t & 2) != 0)
+				sq ^= 56;
+			if((t & 4) != 0)
+				sq = ((sq & 7) << 3) | (sq >>> 3);
+			return sq;
+		}
+
+		public String toString() {
+			return name;
+		}
+	}
+
+	//pieces written strongest first
+	static String sort(String pieces) {
+		StringBuilder sb = new StringBuilder();
+
+		for(int i = 0; i < LETTERS.length(); i++)
+			for(int j = 0; j < pieces.length(); j++)
+				if(pieces.charAt(j) == LETTERS.charAt(i))
+					sb.append(LETTERS.charAt(i));
+
+		return sb.toString();
+	}
+
+	//true if a side with pieces a is put first over one with pieces b, more material first and then stronger pieces
+	static boolean stronger(String a, String b) {
+
+		int va = 0, vb = 0;
+		for(int i = 0; i < a.length(); i++)
+			va += VALUES[LETTERS.indexOf(a.charAt(i))];
+		for(int i = 0; i < b.length(); i++)
+			vb += VALUES[LETTERS.indexOf(b.charAt(i))];
+
+		if(va != vb)
+			return va > vb;
+		if(a.length() != b.length())
+			return a.length() < b.length();
+
+		for(int i = 0; i < a.length(); i++)
+			if(a.charAt(i) != b.charAt(i))
+				return LETTERS.indexOf(a.charAt(i)) < LETTERS.indexOf(b.charAt(i));
+
+		return false;
+	}
+
+	//true for material nobody can ever mate with, which needs no table: bare kings, or one knight or bishop
+	static boolean trivial(String white, String black) {
+		String all = white + black;
+		return all.isEmpty() || all.equals("N") || all.equals("B");
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return Returns the number of plies to mate for a tablebase value, odd when the side to move mates
+	 *
+	 * For WON and LOST it's only the least it could be.
+	 */
+	public static int plies(int value) {
+		return (value > 0) ? 2 * value - 1 : -2 * (value + 1);
+	}
+
+	/**
+	 *
+	 * @param plies
+	 * @return Returns the tablebase value for a mate that many plies away, won if plies is odd and lost if it's even,
+	 * WON or LOST if it's too far away to store
+	 */
+	public static int value(int plies) {
+		return ((plies & 1) == 1) ? Math.min((plies + 1) / 2, WON) : Math.max(-(plies / 2) - 1, LOST);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns the material signature of the position on b
+	 *
+	 * A signature is how many of each kind of piece other than the king each side has, three bits a kind, white's and
+	 * then black's. Positions with few enough pieces for a table never have more than seven of a kind.
+	 */
+	public static int signature(Board b) {
+
+		int sig = 0;
+		for(int side = Bitboards.WHITE; side <= Bitboards.BLACK; side++)
+			for(int type = Piece.PAWN; type < Piece.KING; type++)
+				sig += Long.bitCount(b.pieces[side * 6 + type]) << field(side, type);
+
+		return sig;
+	}
+
+	private static int field(int side, int type) {
+		return 3 * (side * 5 + type);
+	}
+
+	//signatures of material nobody can mate with, bare kings or one minor piece, have no bits outside these
+	private static final int LONE_MINOR = (1 << field(Bitboards.WHITE, Piece.KNIGHT)) | (1 << field(Bitboards.WHITE, Piece.BISHOP))
+			| (1 << field(Bitboards.BLACK, Piece.KNIGHT)) | (1 << field(Bitboards.BLACK, Piece.BISHOP));
+
+	/* A table, mapped the first time it is probed */
+	private static final class Table {
+		final Material material;
+		final Path file;
+		private volatile MappedByteBuffer data;
+
+		Table(Material material, Path file) {
+			this.material = material;
+			this.file = file;
+		}
+
+		MappedByteBuffer data() {
+
+			MappedByteBuffer d = data;
+			if(d != null)
+				return d;
+
+			synchronized(this) {
+				if(data != null)
+					return data;
+
+				try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					if(channel.size() != material.size)
+						throw new IllegalStateException(file + " should be " + material.size + " bytes, not " + channel.size());
+
+					return data = channel.map(FileChannel.MapMode.READ_ONLY, 0, material.size);
+				} catch(IOException e) {
+					throw new IllegalStateException("can't map " + file, e);
+				}
+			}
+		}
+	}
+
+	//tables by signature, open addressing, each under the signature of its material and of its material colors swapped
+	private final int[] signatures;
+	private final Table[] slots;
+	private final boolean[] flipped;
+
+	//the most pieces in any table found, positions with more aren't worth probing
+	public final int maxPieces;
+
+	/**
+	 *
+	 * @param dir
+	 *
+	 * Uses every table in dir, nothing is read until it is probed
+	 */
+	public Tablebase(Path dir) throws IOException {
+
+		List<Table> found = new ArrayList<Table>();
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+			for(Path file: files) {
+				String name = file.getFileName().toString();
+				name = name.substring(0, name.length() - EXTENSION.length());
+
+				//only tables named the way probes ask for them, like the generator writes them
+				try {
+					Material m = Material.of(name);
+					if(m.name.equals(name))
+						found.add(new Table(m, file));
+				} catch(IllegalArgumentException e) {
+					//some other file
+				}
+			}
+		}
+
+		int size = 16, most = 0;
+		while(size < 4 * found.size())
+			size *= 2;
+
+		signatures = new int[size];
+		slots = new Table[size];
+		flipped = new boolean[size];
+
+		for(Table t: found) {
+			add(t.material.signature(false), t, false);
+			add(t.material.signature(true), t, true);
+			most = Math.max(most, t.material.pieces);
+		}
+
+		maxPieces = most;
+	}
+
+	//the first one in wins, so a material that's the same both ways round is never looked up flipped
+	private void add(int sig, Table t, boolean flip) {
+
+		int i = slot(sig);
+		if(slots[i] != null)
+			return;
+
+		signatures[i] = sig;
+		slots[i] = t;
+		flipped[i] = flip;
+	}
+
+	//where sig is, or the empty slot it would go in
+	private int slot(int sig) {
+
+		int mask = slots.length - 1, i = (sig * 0x9E3779B9) >>> 16 & mask;
+		while(slots[i] != null && signatures[i] != sig)
+			i = (i + 1) & mask;
+
+		return i;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param sq
+	 * @return Returns the tablebase value of the position on b for the side to move, or UNKNOWN if it isn't in a table
+	 *
+	 * sq is scratch space, with room for a square for every piece on b. Nothing is allocated, so the search can probe
+	 * at every node.
+	 */
+	public int probe(Board b, int[] sq) {
+
+		if(Long.bitCount(b.occupied) > maxPieces || b.castling != 0)
+			return UNKNOWN;
+
+		int side = Bitboards.side(b.turn);
+		if(b.ep_square >= 0 && (Bitboards.pawnAttacks(side ^ 1, b.ep_square) & b.pieces[side * 6 + Piece.PAWN]) != 0)
+			return UNKNOWN;
+
+		int sig = signature(b);
+		if((sig & (sig - 1)) == 0 && (sig & ~LONE_MINOR) == 0)
+			return 0;
+
+		//the table has the stronger side as white
+		int i = slot(sig);
+		Table t = slots[i];
+		if(t == null)
+			return UNKNOWN;
+
+		boolean flip = flipped[i];
+		Material m = t.material;
+
+		//each slot takes the next piece of its kind, slots of a kind come one after the other
+		long left = 0L;
+		for(int j = 0, code = -1; j < m.pieces; j++) {
+			int c = (m.colors[j] ^ (flip ? 1 : 0)) * 6 + m.types[j];
+			if(c != code) {
+				code = c;
+				left = b.pieces[c];
+			}
+
+			sq[j] = Long.numberOfTrailingZeros(left) ^ (flip ? 56 : 0);
+			left &= left - 1;
+		}
+
+		byte value = t.data().get((int)m.index(sq, side ^ (flip ? 1 : 0)));
+		return (value == ILLEGAL) ? UNKNOWN : value;
+	}
+	public int probe(Board b) {
+		return probe(b, new int[Long.bitCount(b.occupied)]);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns the best move on b by the tables, the fastest mate when winning and the slowest when losing, or
+	 * Move.NONE if the position or one of the positions after it isn't in a table
+	 */
+	public int bestMove(Board b) {
+
+		int[] sq = new int[Long.bitCount(b.occupied)];
+		if(probe(b, sq) == UNKNOWN)
+			return Move.NONE;
+
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.legal(b, Bitboards.side(b.turn), moves, 0);
+
+		int best = Move.NONE, bestRank = Integer.MIN_VALUE;
+
+		for(int i = 0; i < n; i++) {
+			b.makeMove(moves[i]);
+			int v = probe(b, sq);
+			b.unmakeMove();
+
+			if(v == UNKNOWN)
+				return Move.NONE;
+
+			//the opponent's value turned into how good the move is for us: quick wins, then draws, then slow losses
+			int rank = (v < 0) ? 1000 + v : (v == 0) ? 0 : -1000 + v;
+
+			if(rank > bestRank) {
+				bestRank = rank;
+				best = moves[i];
+			}
+		}
+
+		return best;
+	}
+}
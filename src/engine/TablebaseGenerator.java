@@ -0,0 +1,565 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import parts.Bitboards;
+import parts.Piece;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Makes {@link Tablebase} tables by retrograde analysis.
+ *
+ * First every position is looked at once: impossible ones are marked, mates and stalemates are found, and so are
+ * moves that capture or promote, which leave the table and are answered by the smaller tables made before this one.
+ * Then the mates are worked backwards a ply at a time. A position one move before a loss is a win one ply further
+ * out, and a position whose moves all lead to wins for the other side is a loss, one ply further than its slowest
+ * one. Going backwards uses un-moves, so each pass only visits the positions that just got their value and the ones
+ * that could have led to them. Whatever is left at the end is a draw.
+ *
+ * Mates longer than Tablebase.LONGEST plies all get the same value, so past that ply a pass can't tell the new ones
+ * from the old and goes back from all of them, until a pass for each side to move finds nothing new. Which positions
+ * are won, drawn or lost stays exact, only how far the longest mates are is lost.
+ *
+ * Every pass is split over the cores with fork/join. A pass only ever writes wins or only ever writes losses, each
+ * for a position from what is already settled, so threads that write the same position write the same byte.
+ */
+public class TablebaseGenerator {
+
+	//positions per task before it stops splitting
+	private static final int GRAIN = 1 << 14;
+
+	private final ForkJoinPool pool;
+	private final Path dir;
+
+	//tables made or read so far, by name
+	private final HashMap<String, byte[]> tables = new HashMap<String, byte[]>();
+
+	public TablebaseGenerator(Path dir, ForkJoinPool pool) {
+		this.dir = dir;
+		this.pool = pool;
+	}
+	public TablebaseGenerator(Path dir) {
+		this(dir, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return Returns the table for a material, made after every smaller table it leads to, and saved in the directory
+	 * unless it was already there
+	 */
+	public byte[] generate(String name) throws IOException {
+
+		Tablebase.Material m = Tablebase.Material.of(name);
+
+		byte[] values = tables.get(m.name);
+		if(values != null)
+			return values;
+
+		Path file = (dir == null) ? null : dir.resolve(m.name + Tablebase.EXTENSION);
+		if(file != null && Files.exists(file) && Files.size(file) == m.size) {
+			values = Files.readAllBytes(file);
+		}
+		else {
+			Table t = new Table(m);
+			values = t.run();
+
+			if(file != null)
+				Files.write(file, values);
+		}
+
+		tables.put(m.name, values);
+		return values;
+	}
+
+	/* Where a capture or promotion leaves a table for: the smaller table, and which slot of it each piece goes to */
+	private static final class Exit {
+		final Tablebase.Material material;
+		final byte[] values;
+		final boolean flip;
+		final int[] slot;
+
+		Exit(Tablebase.Material material, byte[] values, boolean flip, int[] slot) {
+			this.material = material;
+			this.values = values;
+			this.flip = flip;
+			this.slot = slot;
+		}
+	}
+
+	/* The work on one table */
+	private final class Table {
+
+		final Tablebase.Material m;
+		final byte[] values;
+		final int n;
+
+		//exits[mover][captured + 1][promotion], null where there's no such move, values null for a dead draw
+		final Exit[][][] exits;
+
+		final AtomicInteger deepest = new AtomicInteger(-1);
+
+		//positions given a value so far
+		final AtomicLong settled = new AtomicLong();
+
+		Table(Tablebase.Material m) throws IOException {
+			this.m = m;
+			this.n = m.pieces;
+
+			if(m.size > Integer.MAX_VALUE)
+				throw new IllegalArgumentException(m.name + " is too big for one table");
+
+			values = new byte[(int)m.size];
+			exits = new Exit[n][n + 1][Piece.QUEEN + 1];
+
+			for(int mover = 0; mover < n; mover++)
+				for(int captured = -1; captured < n; captured++) {
+
+					if(captured == mover || captured == 0 || captured == 1 || (captured >= 0 && m.colors[captured] == m.colors[mover]))
+						continue;
+
+					if(m.types[mover] == Piece.PAWN)
+						for(int p = Piece.KNIGHT; p <= Piece.QUEEN; p++)
+							exits[mover][captured + 1][p] = exit(mover, captured, p);
+
+					if(captured >= 0)
+						exits[mover][captured + 1][0] = exit(mover, captured, 0);
+				}
+		}
+
+		//the smaller table a move leads to, made now if it hasn't been
+		private Exit exit(int mover, int captured, int promotion) throws IOException {
+
+			int[] colors = new int[n], types = new int[n];
+			StringBuilder white = new StringBuilder(), black = new StringBuilder();
+
+			for(int i = 2; i < n; i++) {
+				if(i == captured)
+					continue;
+
+				int type = (i == mover && promotion != 0) ? promotion : m.types[i];
+				(m.colors[i] == Bitboards.WHITE ? white : black).append(Tablebase.LETTERS.charAt(letter(type)));
+			}
+
+			for(int i = 0; i < n; i++) {
+				colors[i] = m.colors[i];
+				types[i] = (i == mover && promotion != 0) ? promotion : m.types[i];
+			}
+
+			String w = Tablebase.sort(white.toString()), b = Tablebase.sort(black.toString());
+			if(Tablebase.trivial(w, b))
+				return new Exit(null, null, false, null);
+
+			boolean flip = Tablebase.stronger(b, w);
+			Tablebase.Material child = Tablebase.Material.of(flip ? "K" + b + "K" + w : "K" + w + "K" + b);
+			byte[] childValues = generate(child.name);
+
+			//each piece goes to the first free slot of its kind
+			int[] slot = new int[n];
+			boolean[] used = new boolean[child.pieces];
+
+			for(int i = 0; i < n; i++) {
+				slot[i] = -1;
+				if(i == captured)
+					continue;
+
+				for(int j = 0; j < child.pieces; j++)
+					if(!used[j] && child.colors[j] == (colors[i] ^ (flip ? 1 : 0)) && child.types[j] == types[i]) {
+						used[j] = true;
+						slot[i] = j;
+						break;
+					}
+			}
+
+			return new Exit(child, childValues, flip, slot);
+		}
+
+		byte[] run() {
+
+			pool.invoke(new Pass(0, values.length, -1));
+
+			//pass after pass until a ply comes with nothing new and nothing set further out. Past the longest mates stored
+			//the plies of new ones aren't known, so it goes on until a pass for each side finds nothing.
+			for(int level = 1, quiet = 0; level <= Math.min(deepest.get(), Tablebase.LONGEST) + 1
+					|| (deepest.get() >= Tablebase.LONGEST && quiet < 2); level++) {
+				long before = settled.get();
+				pool.invoke(new Pass(0, values.length, level));
+
+				quiet = (level > Tablebase.LONGEST && settled.get() == before) ? quiet + 1 : 0;
+			}
+
+			return values;
+		}
+
+		/* One pass over a range of positions: the first look at each (level -1), or working back from the positions
+		 * settled at level - 1 plies */
+		final class Pass extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			final int from, to, level;
+
+			Pass(int from, int to, int level) {
+				this.from = from;
+				this.to = to;
+				this.level = level;
+			}
+
+			protected void compute() {
+
+				if(to - from > GRAIN) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new Pass(from, mid, level), new Pass(mid, to, level));
+					return;
+				}
+
+				Walker w = new Walker();
+
+				if(level < 0)
+					for(int i = from; i < to; i++)
+						w.first(i);
+
+				else {
+					byte target = (byte)Tablebase.value(level - 1);
+
+					for(int i = from; i < to; i++)
+						if(values[i] == target)
+							w.back(i, level);
+				}
+
+				deepest.accumulateAndGet(w.deepest, Math::max);
+				settled.addAndGet(w.settled);
+			}
+		}
+
+		/* Scratch space for one task */
+		final class Walker {
+
+			final int[] sq = new int[n];
+			final int[] child = new int[8];
+			int deepest = -1;
+			long settled;
+
+			//what the moves of a position lead to, filled in by moves()
+			int legal, inside, insideOpen, insideWorst, exitWin, exitWorst;
+			boolean exitDraw;
+
+			void set(int index, int level) {
+				values[index] = (byte)Tablebase.value(level);
+				deepest = Math.max(deepest, level);
+				settled++;
+			}
+
+			//first look at a position
+			void first(int index) {
+
+				int side = m.decode(index, sq);
+
+				if(!legal(side)) {
+					values[index] = Tablebase.ILLEGAL;
+					return;
+				}
+
+				moves(side, 0);
+
+				if(legal == 0) {
+					if(attacked(sq[side], side ^ 1, occupied(), -1))
+						set(index, 0);
+				}
+
+				//a capture or promotion that wins, there might be a quicker win inside the table yet
+				else if(exitWin >= 0)
+					set(index, exitWin + 1);
+
+				//every move leaves the table, and none of them wins or draws
+				else if(inside == 0 && !exitDraw)
+					set(index, exitWorst + 1);
+			}
+
+			//works back from a position settled level - 1 plies from mate
+			void back(int index, int level) {
+
+				int side = m.decode(index, sq);
+				unmoves(side ^ 1, level);
+
+				//off the diagonal the table has one position for a board and its mirror across it, which have different
+				//un-moves, and the ones of the mirror can lead to positions kept apart from their own mirrors
+				if(!m.pawns && Bitboards.row(sq[0]) != Bitboards.column(sq[0])) {
+					for(int i = 0; i < n; i++)
+						sq[i] = ((sq[i] & 7) << 3) | (sq[i] >>> 3);
+					unmoves(side ^ 1, level);
+				}
+			}
+
+			//every position mover could have come from by a move that isn't a capture or a promotion
+			void unmoves(int mover, int level) {
+
+				boolean won = (level & 1) == 1;
+				long occ = occupied();
+
+				for(int i = 0; i < n; i++) {
+
+					if(m.colors[i] != mover)
+						continue;
+
+					int at = sq[i];
+					long froms;
+
+					if(m.types[i] != Piece.PAWN)
+						froms = Bitboards.attacks(m.types[i], mover, at, occ) & ~occ;
+
+					//pawns only go forward, so they come from behind, two squares back from their fourth row
+					else {
+						int back = (mover == Bitboards.WHITE) ? -8 : 8;
+						int row = Bitboards.row(at), start = (mover == Bitboards.WHITE) ? 1 : 6;
+						froms = 0L;
+
+						if(row != start && (occ & Bitboards.bit(at + back)) == 0) {
+							froms |= Bitboards.bit(at + back);
+
+							if(row == start + 2 * (back < 0 ? 1 : -1) && (occ & Bitboards.bit(at + 2 * back)) == 0)
+								froms |= Bitboards.bit(at + 2 * back);
+						}
+					}
+
+					for(; froms != 0; froms &= froms - 1) {
+
+						sq[i] = Long.numberOfTrailingZeros(froms);
+						int before = (int)m.index(sq, mover);
+						byte v = values[before];
+
+						//one move from a loss is a win, unless a quicker one was already found
+						if(won) {
+							if(v == 0 || (v > 0 && Tablebase.plies(v) > level))
+								set(before, level);
+						}
+
+						//a loss only once every move leads to a win that can't get any quicker
+						else if(v == 0) {
+							moves(mover, level);
+
+							if(insideOpen == 0 && exitWin < 0 && !exitDraw)
+								set(before, Math.max(insideWorst, exitWorst) + 1);
+						}
+
+						sq[i] = at;
+					}
+				}
+			}
+
+			long occupied() {
+				long occ = 0L;
+				for(int i = 0; i < n; i++)
+					occ |= Bitboards.bit(sq[i]);
+				return occ;
+			}
+
+			//true if no two pieces share a square, no pawn is on the first or last row, and the side not to move isn't in check
+			boolean legal(int side) {
+
+				long occ = occupied();
+				if(Long.bitCount(occ) != n)
+					return false;
+
+				for(int i = 2; i < n; i++)
+					if(m.types[i] == Piece.PAWN && (Bitboards.row(sq[i]) == 0 || Bitboards.row(sq[i]) == 7))
+						return false;
+
+				return !attacked(sq[side ^ 1], side, occ, -1);
+			}
+
+			//whether a square is attacked by side, leaving out the piece in slot skip
+			boolean attacked(int target, int side, long occ, int skip) {
+
+				for(int i = 0; i < n; i++)
+					if(i != skip && m.colors[i] == side
+							&& (Bitboards.attacks(m.types[i], side, sq[i], occ) & Bitboards.bit(target)) != 0)
+						return true;
+
+				return false;
+			}
+
+			/**
+			 * Goes through every legal move of side and sums up where they lead: how many there are, how many stay in
+			 * the table and how many of those aren't settled wins for the other side yet, the slowest of the ones that
+			 * are, and for moves leaving the table the quickest win, whether one draws and the slowest loss.
+			 *
+			 * A win found through a capture or promotion is only settled before the pass for its own ply, until then
+			 * one inside the table could still turn out quicker.
+			 */
+			void moves(int side, int level) {
+
+				legal = inside = insideOpen = 0;
+				insideWorst = exitWorst = exitWin = -1;
+				exitDraw = false;
+
+				long occ = occupied(), own = 0L;
+				for(int i = 0; i < n; i++)
+					if(m.colors[i] == side)
+						own |= Bitboards.bit(sq[i]);
+
+				int king = side;
+				int up = (side == Bitboards.WHITE) ? 8 : -8;
+				int last = (side == Bitboards.WHITE) ? 7 : 0;
+
+				for(int i = 0; i < n; i++) {
+
+					if(m.colors[i] != side)
+						continue;
+
+					int from = sq[i];
+					long targets;
+
+					if(m.types[i] != Piece.PAWN)
+						targets = Bitboards.attacks(m.types[i], side, from, occ) & ~own;
+					else {
+						targets = Bitboards.pawnAttacks(side, from) & occ & ~own;
+
+						if((occ & Bitboards.bit(from + up)) == 0) {
+							targets |= Bitboards.bit(from + up);
+
+							if(Bitboards.row(from) == last - 6 * (up / 8) && (occ & Bitboards.bit(from + 2 * up)) == 0)
+								targets |= Bitboards.bit(from + 2 * up);
+						}
+					}
+
+					for(; targets != 0; targets &= targets - 1) {
+
+						int to = Long.numberOfTrailingZeros(targets);
+
+						int captured = -1;
+						for(int j = 0; j < n; j++)
+							if(j != i && sq[j] == to)
+								captured = j;
+
+						long after = (occ & ~Bitboards.bit(from)) | Bitboards.bit(to);
+						sq[i] = to;
+
+						if(!attacked(sq[king], side ^ 1, after, captured)) {
+
+							boolean promotes = m.types[i] == Piece.PAWN && Bitboards.row(to) == last;
+
+							if(captured < 0 && !promotes) {
+								legal++;
+								inside++;
+
+								byte v = values[(int)m.index(sq, side ^ 1)];
+								if(v > 0 && Tablebase.plies(v) < level)
+									insideWorst = Math.max(insideWorst, Tablebase.plies(v));
+								else
+									insideOpen++;
+							}
+							else if(!promotes)
+								leave(exits[i][captured + 1][0], i, captured, side);
+							else
+								for(int p = Piece.KNIGHT; p <= Piece.QUEEN; p++)
+									leave(exits[i][captured + 1][p], i, captured, side);
+						}
+
+						sq[i] = from;
+					}
+				}
+			}
+
+			//a move out of the table, looked up in the smaller one
+			void leave(Exit e, int mover, int captured, int side) {
+
+				legal++;
+
+				if(e.values == null) {
+					exitDraw = true;
+					return;
+				}
+
+				for(int i = 0; i < n; i++)
+					if(i != captured)
+						child[e.slot[i]] = e.flip ? sq[i] ^ 56 : sq[i];
+
+				byte v = e.values[(int)e.material.index(child, (side ^ 1) ^ (e.flip ? 1 : 0))];
+
+				if(v == 0)
+					exitDraw = true;
+				else if(v < 0)
+					exitWin = (exitWin < 0) ? Tablebase.plies(v) : Math.min(exitWin, Tablebase.plies(v));
+				else
+					exitWorst = Math.max(exitWorst, Tablebase.plies(v));
+			}
+		}
+	}
+
+	//the letter a piece type is written with in a material name
+	private static int letter(int type) {
+		switch(type) {
+			case Piece.QUEEN: return 0;
+			case Piece.ROOK: return 1;
+			case Piece.BISHOP: return 2;
+			case Piece.KNIGHT: return 3;
+			default: return 4;
+		}
+	}
+
+	/**
+	 *
+	 * @param values
+	 * @return Returns a line with how many positions are won, drawn and lost for the side to move, and the longest mate
+	 */
+	public static String summary(byte[] values) {
+
+		long won = 0, drawn = 0, lost = 0;
+		int longest = 0;
+
+		for(byte v: values) {
+			if(v == Tablebase.ILLEGAL)
+				continue;
+
+			if(v > 0)
+				won++;
+			else if(v < 0)
+				lost++;
+			else
+				drawn++;
+
+			longest = Math.max(longest, v);
+		}
+
+		return "won " + won + ", drawn " + drawn + ", lost " + lost + ", longest mate " + longest
+				+ ((longest == Tablebase.WON) ? " or more" : "") + " moves";
+	}
+
+	/**
+	 * Usage: java engine.TablebaseGenerator [dir] [material ...]
+	 *
+	 * Makes the tables for each material (KQK, KRK, KPK and KBNK if none are given) and every smaller one they need.
+	 */
+	public static void main(String args[]) throws IOException {
+
+		Path dir = Paths.get((args.length > 0) ? args[0] : "tablebases");
+		Files.createDirectories(dir);
+
+		String[] materials = (args.length > 1) ? Arrays.copyOfRange(args, 1, args.length)
+				: new String[] {"KQK", "KRK", "KPK", "KBNK"};
+
+		TablebaseGenerator generator = new TablebaseGenerator(dir);
+
+		for(String name: materials) {
+			long time = System.nanoTime();
+			byte[] values = generator.generate(name);
+			time = System.nanoTime() - time;
+
+			System.out.println(Tablebase.Material.of(name) + ": " + values.length + " positions in " + time / 1000000
+					+ " ms on " + generator.pool.getParallelism() + " threads, " + summary(values));
+		}
+	}
+}
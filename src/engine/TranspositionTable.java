@@ -0,0 +1,211 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * A fixed size table of search results, looked up by a position's Zobrist key (see parts.Zobrist).
+ *
+ * Entries live in two plain long arrays, one for the key and one for the packed data, so the table is a couple of
+ * big primitive arrays no matter how many positions it holds. Each bucket has two slots: the first keeps the deepest
+ * result (unless it is left over from an older search) and the second is always replaced. The policy can be changed
+ * to only use one kind of slot.
+ *
+ * The key is stored XORed with the data, so an entry whose two halves were written by different threads at the
+ * same time just fails to match instead of handing back another position's result. That means it can be shared
+ * between search threads without locking.
+ */
+public class TranspositionTable {
+
+	//what kind of result an entry holds
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	//replacement policies
+	public static final int TWO_TIER = 0;
+	public static final int DEPTH_PREFERRED = 1;
+	public static final int ALWAYS_REPLACE = 2;
+
+	private static final int ENTRY_BYTES = 16;
+
+	private long[] keys;
+	private long[] data;
+	private int mask;
+	private final int policy;
+	private int generation = 0;
+
+	//instrumentation, not synchronized, so only approximate when several threads share the table
+	public long probes, hits, misses, collisions, stores;
+
+	/**
+	 *
+	 * @param megabytes
+	 * @param policy
+	 *
+	 * Makes a table using at most the given number of megabytes, rounded down to a power of two buckets
+	 */
+	public TranspositionTable(int megabytes, int policy) {
+		this.policy = policy;
+		resize(megabytes);
+	}
+	public TranspositionTable(int megabytes) {
+		this(megabytes, TWO_TIER);
+	}
+
+	/**
+	 *
+	 * @param megabytes
+	 *
+	 * Throws away every entry and reallocates the table at a new size
+	 */
+	public void resize(int megabytes) {
+
+		long entries = Math.max(2, (long)megabytes * 1024 * 1024 / ENTRY_BYTES);
+		int buckets = Integer.highestOneBit((int)Math.min(entries / 2, 1 << 29));
+
+		keys = new long[buckets * 2];
+		data = new long[buckets * 2];
+		mask = buckets - 1;
+		resetCounters();
+	}
+
+	//empties the table, keeping its size
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, 0L);
+		generation = 0;
+	}
+
+	//marks the start of a new search, so entries from older ones are replaced first
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	public void resetCounters() {
+		probes = hits = misses = collisions = stores = 0;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return Returns the packed data stored for the position, or 0 if it isn't in the table
+	 */
+	public long probe(long key) {
+
+		int i = ((int)key & mask) << 1;
+		probes++;
+
+		for(int slot = i; slot < i + 2; slot++) {
+			long d = data[slot];
+
+			if(d != 0 && (keys[slot] ^ d) == key) {
+				hits++;
+				return d;
+			}
+		}
+
+		//an occupied bucket that didn't have our key means two positions are fighting over it
+		if(data[i] != 0 || data[i + 1] != 0)
+			collisions++;
+		misses++;
+
+		return 0L;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param move
+	 * @param score
+	 * @param depth
+	 * @param bound
+	 *
+	 * Stores a search result, following the replacement policy
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+
+		int i = ((int)key & mask) << 1;
+		stores++;
+
+		long old = data[i];
+		boolean same = old != 0 && (keys[i] ^ old) == key;
+
+		//keep the best move we had if this result doesn't have one
+		if(move == 0 && same)
+			move = move(old);
+
+		long d = pack(move, score, depth, bound, generation);
+
+		if(policy == ALWAYS_REPLACE) {
+			write(i, key, d);
+			return;
+		}
+
+		//the depth preferred slot is taken if it's empty, the same position, not as deep, or from an older search
+		if(old == 0 || same || depth >= depth(old) || generation(old) != generation) {
+			write(i, key, d);
+			return;
+		}
+
+		if(policy == TWO_TIER)
+			write(i + 1, key, d);
+	}
+
+	private void write(int slot, long key, long d) {
+		data[slot] = d;
+		keys[slot] = key ^ d;
+	}
+
+	/**
+	 *
+	 * @return Returns how full the table is in parts per thousand, sampled from the first thousand slots
+	 */
+	public int hashfull() {
+		int n = Math.min(1000, data.length), used = 0;
+
+		for(int i = 0; i < n; i++)
+			if(data[i] != 0 && generation(data[i]) == generation)
+				used++;
+
+		return used * 1000 / n;
+	}
+
+	public double hitRate() {
+		return (probes == 0) ? 0 : (double)hits / probes;
+	}
+
+	public String stats() {
+		return "probes " + probes + ", hits " + hits + " (" + Math.round(hitRate() * 1000) / 10.0 + "%), misses " + misses
+				+ ", collisions " + collisions + ", stores " + stores;
+	}
+
+	/* Packing: bits 0-19 move, 20-35 score (offset so it's never negative), 36-43 depth + 1,
+	 * 44-45 bound, 46-53 generation. A bound of 0 never happens, so real entries are never 0. */
+	private static long pack(int move, int score, int depth, int bound, int generation) {
+		return (move & 0xFFFFFL)
+				| ((long)(score + 32768) & 0xFFFF) << 20
+				| ((long)(Math.max(-1, Math.min(depth, 254)) + 1) & 0xFF) << 36
+				| ((long)bound) << 44
+				| ((long)generation) << 46;
+	}
+
+	public static int move(long d) {
+		return (int)(d & 0xFFFFF);
+	}
+	public static int score(long d) {
+		return (int)((d >>> 20) & 0xFFFF) - 32768;
+	}
+	public static int depth(long d) {
+		return (int)((d >>> 36) & 0xFF) - 1;
+	}
+	public static int bound(long d) {
+		return (int)((d >>> 44) & 3);
+	}
+	private static int generation(long d) {
+		return (int)((d >>> 46) & 0xFF);
+	}
+}
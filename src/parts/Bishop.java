@@ -34,44 +34,6 @@ public class Bishop extends Piece {
 	    return this.row == o.row && this.column == o.column;
 	}
 
-	@Override
-	public boolean threatens(int c, int r, Board b) {
-		// TODO Auto-generated method stub
-
-		if(c == column || r == row) {
-			return false;
-		}
-
-		int c_mod = (c > column) ? 1 : -1;
-		int r_mod = (r > row) ? 1 : -1;
-
-		int rindex = row + r_mod;
-		int cindex = column + c_mod;
-
-		while((rindex > 0) && (rindex < 7) || (cindex > 0) && (cindex < 7)){
-
-			if(rindex == r && cindex == c)
-				return true;
-
-			else if(rindex == r && cindex != c)
-				return false;
-
-			else if(rindex != r && cindex == c)
-				return false;
-
-			else {
-				if(b.board[cindex][rindex].filled)
-					return false;
-
-				rindex += r_mod;
-				cindex += c_mod;
-			}
-		}
-
-		return false;
-
-	}
-
 	public String toString() {
 		return getColor() + "B";
 	}
@@ -97,4 +59,8 @@ public class Bishop extends Piece {
 		// TODO Auto-generated method stub
 		column = c;
 	}
+	@Override
+	public int getType() {
+		return BISHOP;
+	}
 }
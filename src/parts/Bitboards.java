@@ -0,0 +1,313 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Static helpers for the 64-bit board representation that {@link Board} keeps next to its squares.
+ *
+ * A square index is row * 8 + column, so [0,0] (a1) is bit 0 and [7,7] (h8) is bit 63.
+ * Pieces are indexed by side * 6 + type, with types taken from {@link Piece}.
+ */
+public final class Bitboards {
+
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	public static final long FILE_A = 0x0101010101010101L;
+	public static final long FILE_H = FILE_A << 7;
+	public static final long NOT_A = ~FILE_A;
+	public static final long NOT_H = ~FILE_H;
+	public static final long NOT_AB = ~(FILE_A | (FILE_A << 1));
+	public static final long NOT_GH = ~(FILE_H | (FILE_H >>> 1));
+
+	public static final long RANK_1 = 0xFFL;
+	public static final long RANK_8 = RANK_1 << 56;
+
+	private Bitboards() {
+	}
+
+	//square index helpers
+	public static int square(int c, int r) {
+		return (r << 3) | c;
+	}
+	public static int column(int sq) {
+		return sq & 7;
+	}
+	public static int row(int sq) {
+		return sq >>> 3;
+	}
+	public static long bit(int sq) {
+		return 1L << sq;
+	}
+
+	//side helpers, 'w' is WHITE and anything else is BLACK
+	public static int side(char color) {
+		return (color == 'w') ? WHITE : BLACK;
+	}
+	public static char color(int side) {
+		return (side == WHITE) ? 'w' : 'b';
+	}
+
+	/* Attack tables, all worked out once when the class loads.
+	 *
+	 * Knights, kings and pawns just have one entry per square. Rooks and bishops use magic bitboards: the pieces on
+	 * the squares that could block a slider (its mask) are multiplied by a number picked for that square so that the
+	 * top bits of the product are different for every arrangement of blockers that matters, and those bits index a
+	 * table holding the attack set for that arrangement. The magic numbers were found once by trying sparse random
+	 * numbers until one worked for each square. */
+	private static final long[] KNIGHT = new long[64];
+	private static final long[] KING = new long[64];
+	private static final long[][] PAWN = new long[2][64];
+
+	private static final long[] ROOK_MASK = new long[64], BISHOP_MASK = new long[64];
+	private static final int[] ROOK_SHIFT = new int[64], BISHOP_SHIFT = new int[64];
+	private static final int[] ROOK_OFFSET = new int[64], BISHOP_OFFSET = new int[64];
+	private static final long[] ROOK_TABLE, BISHOP_TABLE;
+
+	//for two squares on the same row, column or diagonal: the squares strictly between them, and the whole line
+	//through both. 0 for squares that don't line up. Indexed by a * 64 + b
+	private static final long[] BETWEEN = new long[64 * 64];
+	private static final long[] LINE = new long[64 * 64];
+
+	private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+	private static final long[] ROOK_MAGIC = {
+		0x0980008011400020L, 0x8340004410002000L, 0x0880200090008268L, 0x0080080080100004L,
+		0x8100110004020800L, 0x0300010004000822L, 0x08801A0029000080L, 0x8100050001204882L,
+		0x0844800081400320L, 0x0804402010004000L, 0x0108802003100480L, 0x0004808008001000L,
+		0x0003001801001014L, 0x0002000200041008L, 0x0004008108042210L, 0x0105000100009042L,
+		0x0400808000400021L, 0xC100404010002000L, 0x0060008010002088L, 0x0400808008001000L,
+		0x4440808008000400L, 0x1002008004000280L, 0x40024400300D1248L, 0x0010020000408104L,
+		0x0101008200204200L, 0x8020002040005000L, 0x4100100080802000L, 0x4008006A80100280L,
+		0x1020080080040080L, 0x0004010040020040L, 0x0018A12400080290L, 0x6140004200008104L,
+		0x4000400020800090L, 0x2020002080804000L, 0x0000408202002010L, 0x0080100501000820L,
+		0x0000800400800800L, 0x000A200408014010L, 0x0100800200800100L, 0xA00800570200008CL,
+		0x008000406000C010L, 0x1040100028002000L, 0x0048200100110040L, 0x0068490210030020L,
+		0x1009080005010010L, 0x2142000804010100L, 0x1001080110840002L, 0x1801004400820001L,
+		0x010440208D020200L, 0x0000400020008080L, 0x0200200080100280L, 0x0000100020090100L,
+		0x0204008008020480L, 0x8104010040020040L, 0x78000201B0080400L, 0x0040800051002880L,
+		0x0050108001002041L, 0x208A801100614003L, 0x0006002042089082L, 0x0011090004201001L,
+		0x1002001004200802L, 0x0005000208040001L, 0x0002002701AC0822L, 0x000010250184004AL
+	};
+	private static final long[] BISHOP_MAGIC = {
+		0xC0A0012206040EA0L, 0x8010228200420001L, 0x0110008220400400L, 0x02445C0080106000L,
+		0x0044042004008100L, 0x0880900420408C05L, 0x0201080110080002L, 0x0000108094202000L,
+		0x0000042002040108L, 0x0000623024110042L, 0x0086100094811002L, 0x0000044502002080L,
+		0x0100460211400040L, 0x0008109004200004L, 0x0202320084844000L, 0x8040042421041009L,
+		0x201010C05102008CL, 0x1020888208024080L, 0x0108000C80290200L, 0x8048000420425203L,
+		0x0005000090402000L, 0x2080400201104100L, 0x8820420111101000L, 0x4AC0302208821802L,
+		0x000440001002A840L, 0x2002200010041080L, 0x1012080201004400L, 0x8440040002410120L,
+		0x1090820084010400L, 0x2084852012021000L, 0x12040062C1011003L, 0x02008205E1090080L,
+		0x088C102808042080L, 0x0802102200904280L, 0x8020209002080020L, 0x2200080800060A00L,
+		0x20C0004010010100L, 0x0802004100821003L, 0x0008024400008080L, 0x0000840102008090L,
+		0x0030A40420244007L, 0x0A19084210011282L, 0x0004082090019806L, 0x6108004208020080L,
+		0x0081200410110100L, 0x1040810701010208L, 0x0282047832012080L, 0x0010020099000020L,
+		0x000E010422400840L, 0x10204208B0089090L, 0x081004440C048000L, 0x88C0180084040001L,
+		0x3100020803040080L, 0x890070A041210C00L, 0x0020200101010A09L, 0x0004100240410400L,
+		0x0006004402080200L, 0x0801062484042000L, 0x00010002D7441004L, 0x0810080000208800L,
+		0x0000020808030411L, 0x1450001020014440L, 0x004060081081A288L, 0x0044011404108A00L
+	};
+
+	static {
+		for(int sq = 0; sq < 64; sq++) {
+			long b = bit(sq);
+
+			KNIGHT[sq] = ((b & NOT_H) << 17) | ((b & NOT_A) << 15)
+					| ((b & NOT_GH) << 10) | ((b & NOT_AB) << 6)
+					| ((b & NOT_A) >>> 17) | ((b & NOT_H) >>> 15)
+					| ((b & NOT_AB) >>> 10) | ((b & NOT_GH) >>> 6);
+
+			long side = ((b & NOT_A) >>> 1) | ((b & NOT_H) << 1);
+			KING[sq] = side | ((b | side) << 8) | ((b | side) >>> 8);
+
+			PAWN[WHITE][sq] = allPawnAttacks(WHITE, b);
+			PAWN[BLACK][sq] = allPawnAttacks(BLACK, b);
+		}
+
+		ROOK_TABLE = initMagics(ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET);
+		BISHOP_TABLE = initMagics(BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET);
+
+		for(int a = 0; a < 64; a++)
+			for(int b = 0; b < 64; b++) {
+				if(a == b)
+					continue;
+
+				if((rookAttacks(a, 0L) & bit(b)) != 0) {
+					BETWEEN[a * 64 + b] = rookAttacks(a, bit(b)) & rookAttacks(b, bit(a));
+					LINE[a * 64 + b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | bit(a) | bit(b);
+				}
+				else if((bishopAttacks(a, 0L) & bit(b)) != 0) {
+					BETWEEN[a * 64 + b] = bishopAttacks(a, bit(b)) & bishopAttacks(b, bit(a));
+					LINE[a * 64 + b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | bit(a) | bit(b);
+				}
+			}
+	}
+
+	//the squares strictly between a and b if they share a row, column or diagonal, otherwise 0
+	public static long between(int a, int b) {
+		return BETWEEN[a * 64 + b];
+	}
+
+	//every square on the row, column or diagonal through a and b, otherwise 0
+	public static long line(int a, int b) {
+		return LINE[a * 64 + b];
+	}
+
+	/**
+	 *
+	 * @param side
+	 * @param sq
+	 * @return Returns the squares a pawn of the given side standing on sq attacks
+	 */
+	public static long pawnAttacks(int side, int sq) {
+		return PAWN[side][sq];
+	}
+
+	/**
+	 *
+	 * @param side
+	 * @param pawns
+	 * @return Returns every square attacked by a whole set of pawns of the given side at once
+	 */
+	public static long allPawnAttacks(int side, long pawns) {
+		if(side == WHITE)
+			return ((pawns & NOT_A) << 7) | ((pawns & NOT_H) << 9);
+
+		return ((pawns & NOT_A) >>> 9) | ((pawns & NOT_H) >>> 7);
+	}
+
+	/**
+	 *
+	 * @param sq
+	 * @return Returns the squares a knight standing on sq attacks
+	 */
+	public static long knightAttacks(int sq) {
+		return KNIGHT[sq];
+	}
+
+	/**
+	 *
+	 * @param sq
+	 * @return Returns the squares a king standing on sq attacks
+	 */
+	public static long kingAttacks(int sq) {
+		return KING[sq];
+	}
+
+	/**
+	 *
+	 * @param sq
+	 * @param occupied
+	 * @return Returns the squares a rook on sq attacks, stopping at (and including) the first blocker in each direction
+	 */
+	public static long rookAttacks(int sq, long occupied) {
+		return ROOK_TABLE[ROOK_OFFSET[sq] + (int)(((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+	}
+
+	/**
+	 *
+	 * @param sq
+	 * @param occupied
+	 * @return Returns the squares a bishop on sq attacks, stopping at (and including) the first blocker in each direction
+	 */
+	public static long bishopAttacks(int sq, long occupied) {
+		return BISHOP_TABLE[BISHOP_OFFSET[sq] + (int)(((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+	}
+
+	public static long queenAttacks(int sq, long occupied) {
+		return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+	}
+
+	//walks every direction until it falls off the board or hits something, only used to fill the tables
+	private static long slide(int sq, long occupied, int[][] directions) {
+		long attacks = 0L;
+
+		for(int[] d: directions) {
+			int c = column(sq) + d[0], r = row(sq) + d[1];
+
+			while(c >= 0 && c < 8 && r >= 0 && r < 8) {
+				long b = bit(square(c, r));
+				attacks |= b;
+
+				if((occupied & b) != 0)
+					break;
+
+				c += d[0];
+				r += d[1];
+			}
+		}
+
+		return attacks;
+	}
+
+	//works out the masks and fills in every square's part of the table, returns the table
+	private static long[] initMagics(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+
+		int size = 0;
+
+		for(int sq = 0; sq < 64; sq++) {
+			//a piece on the last square of a ray can't block anything behind it, so the edges are left out
+			long edges = ((RANK_1 | RANK_8) & ~(RANK_1 << (8 * row(sq)))) | ((FILE_A | FILE_H) & ~(FILE_A << column(sq)));
+
+			masks[sq] = slide(sq, 0L, directions) & ~edges;
+			shifts[sq] = 64 - Long.bitCount(masks[sq]);
+			offsets[sq] = size;
+			size += 1 << Long.bitCount(masks[sq]);
+		}
+
+		long[] table = new long[size];
+
+		for(int sq = 0; sq < 64; sq++) {
+
+			//every arrangement of blockers inside the mask goes to its own slot (or one with the same attacks)
+			long occ = 0L;
+			do {
+				table[offsets[sq] + (int)((occ * magics[sq]) >>> shifts[sq])] = slide(sq, occ, directions);
+				occ = (occ - masks[sq]) & masks[sq];
+			} while(occ != 0);
+		}
+
+		return table;
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @param side
+	 * @param sq
+	 * @param occupied
+	 * @return Returns the attack set of any piece type from sq
+	 */
+	public static long attacks(int type, int side, int sq, long occupied) {
+		switch(type) {
+		case Piece.PAWN:
+			return pawnAttacks(side, sq);
+		case Piece.KNIGHT:
+			return knightAttacks(sq);
+		case Piece.BISHOP:
+			return bishopAttacks(sq, occupied);
+		case Piece.ROOK:
+			return rookAttacks(sq, occupied);
+		case Piece.QUEEN:
+			return queenAttacks(sq, occupied);
+		default:
+			return kingAttacks(sq);
+		}
+	}
+
+	//returns a string of the bitboard, laid out the same way as the board
+	public static String toString(long b) {
+		StringBuilder sb = new StringBuilder();
+
+		for(int r = 7; r >= 0; r--) {
+			for(int c = 0; c < 8; c++)
+				sb.append((b & bit(square(c, r))) != 0 ? "1 " : ". ");
+			sb.append(r + 1).append('\n');
+		}
+
+		return sb.toString();
+	}
+}
@@ -1,6 +1,7 @@
 package parts;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.*;
 
@@ -14,6 +15,9 @@ import java.util.function.*;
  * 
  * Keeps track of all the pieces that are currently in play, 
  * including which Pawn is able to be taken in an en passant manuver
+ * 
+ * Alongside the squares, the board keeps a bitboard for every piece type and color plus occupancy masks,
+ * so that attack queries like threatened and inCheck are answered with bit operations instead of walking pieces.
  */
 
 public class Board {
@@ -26,20 +30,101 @@ public class Board {
 	public King black_king;
 	public King white_king;
 
+	//bitboards, kept in sync with the squares. pieces is indexed by side * 6 + type, see Bitboards
+	public long[] pieces = new long[12];
+	public long[] occupancy = new long[2];
+	public long occupied;
+	
+	//squares each side attacks, worked out lazily once per position; bit side of attacks_valid says if it's current
+	private long[] attack_maps = new long[2];
+	private int attacks_valid = 0;
+	
+	//what is on each square as side * 6 + type, or EMPTY
+	public static final int EMPTY = -1;
+	public int[] mailbox = new int[64];
+	
+	//state that isn't visible from the pieces alone
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+	
+	public char turn = 'w';
+	public int castling = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+	public int ep_square = -1;
+	public int halfmove_clock = 0;
+	public int fullmove_number = 1;
+	
+	//Zobrist key of the position, kept up to date on every change instead of being recomputed, see Zobrist
+	public long key = 0L;
+	
+	//the same but only for the pawns, so anything worked out from the pawn structure alone can be cached by it
+	public long pawn_key = 0L;
+	
+	//material plus piece-square values from white's side, middlegame and endgame, and the game phase, see PieceSquare
+	public int mg_score = 0;
+	public int eg_score = 0;
+	public int phase = 0;
+	
+	//castling rights that survive a move touching each square, so moving or capturing a king or rook clears its rights
+	private static final int[] CASTLE_MASK = new int[64];
+	static {
+		Arrays.fill(CASTLE_MASK, 15);
+		CASTLE_MASK[0] &= ~WHITE_QUEENSIDE;
+		CASTLE_MASK[7] &= ~WHITE_KINGSIDE;
+		CASTLE_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		CASTLE_MASK[56] &= ~BLACK_QUEENSIDE;
+		CASTLE_MASK[63] &= ~BLACK_KINGSIDE;
+		CASTLE_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+	}
+	
+	//undo stack for makeMove/unmakeMove, allocated once and only grown if a game runs past it
+	public int ply = 0;
+	private int[] undo_move = new int[256];
+	private Piece[] undo_piece = new Piece[256];
+	private Piece[] undo_captured = new Piece[256];
+	private Piece[] undo_promoted = new Piece[256];
+	private int[] undo_castling = new int[256];
+	private int[] undo_ep = new int[256];
+	private Pawn[] undo_en_passant = new Pawn[256];
+	private int[] undo_halfmove = new int[256];
+	private boolean[] undo_hasmoved = new boolean[256];
+	private long[] undo_key = new long[256];
+	
+	//scratch space for the older methods that look at moves one piece at a time
+	int[] move_buffer = new int[MoveGenerator.MAX_MOVES];
+	
+	//piece values for exchanges, the king worth more than everything else so it's never traded
+	public static final int[] SEE_VALUE = {PieceSquare.VALUE[Piece.PAWN], PieceSquare.VALUE[Piece.KNIGHT],
+			PieceSquare.VALUE[Piece.BISHOP], PieceSquare.VALUE[Piece.ROOK], PieceSquare.VALUE[Piece.QUEEN], 20000};
+	
+	//the gains of each capture in an exchange, at most one per piece
+	private final int[] see_gain = new int[33];
+
 	/**
 	 * Constructor for the board class, loads an 8x8 board with all black and white pieces
 	 */
 	public Board() {
+		this(true);
+	}
+	
+	//builds the squares, and only puts the starting pieces on them if setup is true
+	private Board(boolean setup) {
 
 		board = new Square[8][8];
 		black_pieces = new ArrayList<Piece>();
 		white_pieces = new ArrayList<Piece>();
+		Arrays.fill(mailbox, EMPTY);
+		
+		if(!setup)
+			castling = 0;
+		key = Zobrist.CASTLING[castling];
 
 		for(int column = 0; column < 8; column++)
 			for(int row = 0; row < 8; row++) {
 				board[column][row] = new Square(column,row);
 
-				if(row < 2 || row > 5) {
+				if(setup && (row < 2 || row > 5)) {
 					// there should be pieces in this square
 					// [0,0] is bottom left, [7,7] is top right
 
@@ -88,21 +173,362 @@ public class Board {
 	}
 
 	
-	/*
+	/**
+	 * 
+	 * @return Returns a board with no pieces on it and no castling rights, white to move
+	 */
 	public static Board blankBoard() {
-		Board b = new Board();
-		b.board = new Square[8][8];
-		b.black_pieces = new ArrayList<Piece>();
-		b.white_pieces = new ArrayList<Piece>();
-		b.black_king = null;
-		b.white_king = null;
+		return new Board(false);
+	}
+	
+	/**
+	 * 
+	 * @param fen
+	 * @return Returns a board set up from a position in Forsyth-Edwards Notation
+	 * 
+	 * See loadFen for the details.
+	 */
+	public static Board fromFen(CharSequence fen) {
+		Board b = blankBoard();
+		b.loadFen(fen);
+		return b;
+	}
+	
+	/**
+	 * 
+	 * @param fen
+	 * 
+	 * Replaces whatever is on this board with a position in Forsyth-Edwards Notation, and clears the move history.
+	 * Reusing one board this way keeps its squares and undo stack, which matters when loading lots of positions.
+	 * 
+	 * The text is read one character at a time straight from fen, nothing is split or copied. Missing trailing
+	 * fields (castling, en passant, clocks) are treated as "-", "-", 0 and 1.
+	 */
+	public void loadFen(CharSequence fen) {
+		
+		clear();
+		
+		int n = fen.length();
+		int i = skipSpaces(fen, 0);
+		
+		//1 - piece placement, from the top row down
+		int c = 0, r = 7;
+		for(; i < n && fen.charAt(i) != ' '; i++) {
+			
+			char ch = fen.charAt(i);
+			
+			if(ch == '/') {
+				c = 0;
+				r--;
+			}
+			else if(ch >= '1' && ch <= '8')
+				c += ch - '0';
+			else {
+				int type = pieceType(ch);
+				
+				if(type < 0 || !onBoard(c, r))
+					throw new IllegalArgumentException("Bad FEN placement at character " + i + ": " + fen);
+				
+				addPiecePlay(c, r, newPiece(type, c, r, (ch < 'a') ? 'w' : 'b'));
+				c++;
+			}
+		}
+		
+		//2 - side to move
+		i = skipSpaces(fen, i);
+		if(i < n) {
+			turn = (fen.charAt(i) == 'b') ? 'b' : 'w';
+			i++;
+		}
+		
+		//3 - castling rights
+		i = skipSpaces(fen, i);
+		for(; i < n && fen.charAt(i) != ' '; i++)
+			switch(fen.charAt(i)) {
+				case 'K': castling |= WHITE_KINGSIDE; break;
+				case 'Q': castling |= WHITE_QUEENSIDE; break;
+				case 'k': castling |= BLACK_KINGSIDE; break;
+				case 'q': castling |= BLACK_QUEENSIDE; break;
+			}
 		
-		for(int c = 0; c < 8; c++)
-			for(int r = 0; r < 8; r++)
-				b.board[c][r] = new Square(c,r);
+		//4 - en passant target
+		i = skipSpaces(fen, i);
+		if(i + 1 < n && fen.charAt(i) != '-') {
+			int col = fen.charAt(i) - 'a', row = fen.charAt(i + 1) - '1';
+			
+			if(!onBoard(col, row))
+				throw new IllegalArgumentException("Bad FEN en passant square at character " + i + ": " + fen);
+			
+			ep_square = Bitboards.square(col, row);
+		}
+		for(; i < n && fen.charAt(i) != ' '; i++);
+		
+		//5 and 6 - clocks
+		i = skipSpaces(fen, i);
+		int start = i;
+		for(halfmove_clock = 0; i < n && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++)
+			halfmove_clock = halfmove_clock * 10 + (fen.charAt(i) - '0');
+		
+		i = skipSpaces(fen, i);
+		int fullmove = 0;
+		for(; i < n && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++)
+			fullmove = fullmove * 10 + (fen.charAt(i) - '0');
+		fullmove_number = (i > start && fullmove > 0) ? fullmove : 1;
+		
+		syncMoved();
+		key = computeKey();
+	}
+	
+	private static int skipSpaces(CharSequence s, int i) {
+		while(i < s.length() && s.charAt(i) == ' ')
+			i++;
+		return i;
+	}
+	
+	//the piece type of a FEN letter, either case, or -1
+	private static int pieceType(char ch) {
+		switch(ch) {
+			case 'p': case 'P': return Piece.PAWN;
+			case 'n': case 'N': return Piece.KNIGHT;
+			case 'b': case 'B': return Piece.BISHOP;
+			case 'r': case 'R': return Piece.ROOK;
+			case 'q': case 'Q': return Piece.QUEEN;
+			case 'k': case 'K': return Piece.KING;
+			default: return -1;
+		}
+	}
+	
+	//takes every piece off and resets the rest of the state to an empty board with white to move
+	private void clear() {
+		
+		for(int sq = 0; sq < 64; sq++)
+			if(mailbox[sq] != EMPTY)
+				board[Bitboards.column(sq)][Bitboards.row(sq)].removePiece();
+		
+		white_pieces.clear();
+		black_pieces.clear();
+		white_king = null;
+		black_king = null;
+		en_passant = null;
+		
+		Arrays.fill(pieces, 0L);
+		Arrays.fill(occupancy, 0L);
+		Arrays.fill(mailbox, EMPTY);
+		occupied = 0L;
+		attacks_valid = 0;
+		
+		turn = 'w';
+		castling = 0;
+		ep_square = -1;
+		halfmove_clock = 0;
+		fullmove_number = 1;
+		key = 0L;
+		pawn_key = 0L;
+		mg_score = 0;
+		eg_score = 0;
+		phase = 0;
+		ply = 0;
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @return Returns sb, with the position in Forsyth-Edwards Notation appended to it
+	 */
+	public StringBuilder toFen(StringBuilder sb) {
+		
+		for(int r = 7; r >= 0; r--) {
+			
+			int empty = 0;
+			
+			for(int c = 0; c < 8; c++) {
+				int code = mailbox[Bitboards.square(c, r)];
+				
+				if(code == EMPTY) {
+					empty++;
+					continue;
+				}
+				
+				if(empty > 0)
+					sb.append((char)('0' + empty));
+				empty = 0;
+				
+				char letter = "pnbrqk".charAt(code % 6);
+				sb.append((code < 6) ? Character.toUpperCase(letter) : letter);
+			}
+			
+			if(empty > 0)
+				sb.append((char)('0' + empty));
+			if(r > 0)
+				sb.append('/');
+		}
+		
+		sb.append(' ').append(turn).append(' ');
+		
+		if(castling == 0)
+			sb.append('-');
+		if((castling & WHITE_KINGSIDE) != 0)
+			sb.append('K');
+		if((castling & WHITE_QUEENSIDE) != 0)
+			sb.append('Q');
+		if((castling & BLACK_KINGSIDE) != 0)
+			sb.append('k');
+		if((castling & BLACK_QUEENSIDE) != 0)
+			sb.append('q');
+		
+		sb.append(' ');
+		if(ep_square < 0)
+			sb.append('-');
+		else
+			sb.append((char)('a' + Bitboards.column(ep_square))).append((char)('1' + Bitboards.row(ep_square)));
+		
+		return sb.append(' ').append(halfmove_clock).append(' ').append(fullmove_number);
+	}
+	public String toFen() {
+		return toFen(new StringBuilder(90)).toString();
+	}
+	
+	/**
+	 * 
+	 * @return Returns a separate board with the same position and the same key history, so repetitions are still seen
+	 * 
+	 * The copy can't take back moves that were made before it was copied.
+	 */
+	public Board copy() {
+		
+		Board b = blankBoard();
+		
+		for(int sq = 0; sq < 64; sq++)
+			if(mailbox[sq] != EMPTY) {
+				int c = Bitboards.column(sq), r = Bitboards.row(sq);
+				b.addPiecePlay(c, r, newPiece(mailbox[sq] % 6, c, r, Bitboards.color(mailbox[sq] / 6)));
+			}
+		
+		b.turn = turn;
+		b.castling = castling;
+		b.ep_square = ep_square;
+		b.halfmove_clock = halfmove_clock;
+		b.fullmove_number = fullmove_number;
+		b.syncMoved();
+		b.key = key;
+		
+		while(b.undo_key.length < ply + 1)
+			b.growUndo();
+		System.arraycopy(undo_key, 0, b.undo_key, 0, ply);
+		b.ply = ply;
 		
 		return b;
-	} */
+	}
+	
+	/**
+	 *
+	 * @param other
+	 *
+	 * Makes this board what copy would make of other, the same position and key history, without making a new board.
+	 * Reusing one board keeps its squares and undo arrays, so a search thread can be handed a new position every move.
+	 */
+	public void copyFrom(Board other) {
+		
+		load(other.snapshot());
+		
+		while(undo_key.length < other.ply + 1)
+			growUndo();
+		System.arraycopy(other.undo_key, 0, undo_key, 0, other.ply);
+		
+		//like a copy, there's nothing before this to take back
+		Arrays.fill(undo_move, 0, other.ply, Move.NONE);
+		ply = other.ply;
+	}
+	
+	/**
+	 *
+	 * @return Returns an immutable snapshot of the position, see Position
+	 */
+	public Position snapshot() {
+		return Position.of(this);
+	}
+	
+	/**
+	 *
+	 * @param p
+	 *
+	 * Replaces whatever is on this board with the position in p, and clears the move history, like loadFen.
+	 * Reusing one board keeps its squares, so this only has to make the pieces.
+	 */
+	public void load(Position p) {
+		
+		clear();
+		
+		int i = 0;
+		for(long bits = p.occupied; bits != 0; bits &= bits - 1, i++) {
+			int sq = Long.numberOfTrailingZeros(bits), code = p.piece(i);
+			int c = Bitboards.column(sq), r = Bitboards.row(sq);
+			
+			//the board was just cleared and the piece is made on its square, so this is addPiecePlay without the checks
+			Piece piece = newPiece(code % 6, c, r, Bitboards.color(code / 6));
+			board[c][r].p = piece;
+			board[c][r].filled = true;
+			setBits(code, sq);
+			
+			if(code < 6)
+				white_pieces.add(piece);
+			else
+				black_pieces.add(piece);
+			
+			if(code == Piece.KING)
+				white_king = (King)piece;
+			else if(code == 6 + Piece.KING)
+				black_king = (King)piece;
+		}
+		
+		turn = p.turn();
+		castling = p.castling();
+		ep_square = p.epSquare();
+		halfmove_clock = p.halfmoveClock();
+		fullmove_number = p.fullmoveNumber();
+		
+		syncMoved();
+		key = p.key;
+	}
+	
+	//sets the older hasmoved and en_passant fields to match the castling rights, pawn rows and en passant square
+	private void syncMoved() {
+		
+		for(Piece p: white_pieces)
+			setMoved(p, true);
+		for(Piece p: black_pieces)
+			setMoved(p, true);
+		
+		for(int side = Bitboards.WHITE; side <= Bitboards.BLACK; side++) {
+			
+			int o = side * 6;
+			int home = (side == Bitboards.WHITE) ? 0 : 7;
+			int kingside = (side == Bitboards.WHITE) ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+			int queenside = (side == Bitboards.WHITE) ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+			
+			for(long pawns = pieces[o + Piece.PAWN]; pawns != 0; pawns &= pawns - 1) {
+				int sq = Long.numberOfTrailingZeros(pawns);
+				
+				if(Bitboards.row(sq) == ((side == Bitboards.WHITE) ? 1 : 6))
+					setMoved(board[Bitboards.column(sq)][Bitboards.row(sq)].p, false);
+			}
+			
+			if((castling & (kingside | queenside)) != 0 && mailbox[Bitboards.square(4, home)] == o + Piece.KING)
+				setMoved(board[4][home].p, false);
+			if((castling & kingside) != 0 && mailbox[Bitboards.square(7, home)] == o + Piece.ROOK)
+				setMoved(board[7][home].p, false);
+			if((castling & queenside) != 0 && mailbox[Bitboards.square(0, home)] == o + Piece.ROOK)
+				setMoved(board[0][home].p, false);
+		}
+		
+		en_passant = null;
+		if(ep_square >= 0) {
+			Piece p = board[Bitboards.column(ep_square)][Bitboards.row(ep_square ^ 8)].p;
+			
+			if(p instanceof Pawn)
+				en_passant = (Pawn)p;
+		}
+	}
 	
 	public static String brak(int a, int b) {
 		return "[" + a + "," + b + "]";
@@ -121,7 +547,11 @@ public class Board {
 		if(p == null)
 			return;
 		
+		if(board[c][r].filled)
+			clearBits(board[c][r].p, c, r);
+		
 		board[c][r].putPiece(p);
+		setBits(p, c, r);
 
 		if(p.getColor() == 'w') {
 
@@ -154,6 +584,68 @@ public class Board {
 		addPiecePlay(p.getColumn(), p.getRow(), p);
 	}
 	
+	/**
+	 * 
+	 * @param c
+	 * @param r
+	 * @return Returns the piece that was taken off the board, or null if the square was empty
+	 * 
+	 * Takes a piece off the board entirely, removing it from play
+	 */
+	public Piece removePiece(int c, int r) {
+		
+		if(!board[c][r].filled)
+			return null;
+		
+		Piece captured = board[c][r].removePiece();
+		clearBits(captured, c, r);
+		
+		if(captured.getColor() == 'w')
+			white_pieces.remove(captured);
+		
+		else
+			black_pieces.remove(captured);
+		
+		return captured;
+	}
+	
+	//keeps the bitboards in sync whenever a piece is put on or taken off a square
+	private void setBits(Piece p, int c, int r) {
+		setBits(Bitboards.side(p.getColor()) * 6 + p.getType(), Bitboards.square(c, r));
+	}
+	private void setBits(int code, int sq) {
+		long b = Bitboards.bit(sq);
+		
+		pieces[code] |= b;
+		occupancy[code / 6] |= b;
+		occupied |= b;
+		attacks_valid = 0;
+		mailbox[sq] = code;
+		key ^= Zobrist.piece(code, sq);
+		if(code % 6 == Piece.PAWN)
+			pawn_key ^= Zobrist.piece(code, sq);
+		mg_score += PieceSquare.MG[(code << 6) | sq];
+		eg_score += PieceSquare.EG[(code << 6) | sq];
+		phase += PieceSquare.PHASE[code % 6];
+	}
+	private void clearBits(Piece p, int c, int r) {
+		int sq = Bitboards.square(c, r);
+		int code = Bitboards.side(p.getColor()) * 6 + p.getType();
+		long b = ~Bitboards.bit(sq);
+		
+		pieces[code] &= b;
+		occupancy[code / 6] &= b;
+		occupied &= b;
+		attacks_valid = 0;
+		mailbox[sq] = EMPTY;
+		key ^= Zobrist.piece(code, sq);
+		if(p.getType() == Piece.PAWN)
+			pawn_key ^= Zobrist.piece(code, sq);
+		mg_score -= PieceSquare.MG[(code << 6) | sq];
+		eg_score -= PieceSquare.EG[(code << 6) | sq];
+		phase -= PieceSquare.PHASE[p.getType()];
+	}
+	
 	/**
 	 * 
 	 * @param s
@@ -214,28 +706,27 @@ public class Board {
 	public void movePiece(Square oldspot, Square newspot, String promote) {
 
 		Piece piece = oldspot.removePiece();
+		clearBits(piece, oldspot.column, oldspot.row);
 
-		if(newspot.filled) {
-
-			Piece captured = newspot.removePiece();
-
-			if(captured.getColor() == 'w')
-				white_pieces.remove(captured);
-
-			else
-				black_pieces.remove(captured);
-		}
+		removePiece(newspot.column, newspot.row);
 		
 		int prom = (piece.getColor() == 'w') ? 7 : 0;
 		
 		if(piece instanceof Pawn && newspot.row == prom) {
 			
+			//the pawn leaves play and is replaced by the promoted piece
+			if(piece.getColor() == 'w')
+				white_pieces.remove(piece);
+			else
+				black_pieces.remove(piece);
+			
 			Promotion(promote, newspot.column, newspot.row);
 		}
 		
 		else {
 			
 			newspot.putPiece(piece);
+			setBits(piece, newspot.column, newspot.row);
 		}
 	}
 	
@@ -255,18 +746,11 @@ public class Board {
 		
 		if(piece != null) {
 			
-			if(board[nc][nr].filled) {
-	
-				Piece captured = board[nc][nr].removePiece();
-	
-				if(captured.getColor() == 'w')
-					white_pieces.remove(captured);
-	
-				else
-					black_pieces.remove(captured);
-			}
+			clearBits(piece, oc, or);
+			removePiece(nc, nr);
 	
 			board[nc][nr].putPiece(piece);
+			setBits(piece, nc, nr);
 		
 		}
 		
@@ -280,123 +764,524 @@ public class Board {
 	 * @return Returns true if board is able to physically move a piece into a spot
 	 */
 	public boolean tryMove(Square oldspot, Square newspot, String promote) {
-		if(!transientmove(oldspot, newspot)) {
-			System.out.println("failed the transient move");
+		if(!oldspot.filled)
 			return false;
-		}
 		
-		if(!oldspot.p.moveTo(newspot.column, newspot.row, this)) {
-			System.out.println("moveTo failed");
+		int move = toMove(oldspot.column, oldspot.row, newspot.column, newspot.row, promote);
+		
+		if(!isLegal(move)) {
+			System.out.println("failed the transient move");
 			return false;
 		}
 		
-		movePiece(oldspot, newspot, promote);
+		makeMove(move);
 		
 		return true;
 	}
 	public boolean tryMove(int oc, int or, int nc, int nr) {
 		
-		if(!transientmove(oc, or, nc, nr))
+		if(!filled(oc, or))
 			return false;
 		
-		if(!(board[oc][or].p.moveTo(nc, nr, this)))
+		int move = toMove(oc, or, nc, nr, "");
+		
+		if(!isLegal(move))
 			return false;
 		
-		movePiece(oc, or, nc, nr);
+		makeMove(move);
 		
 		return true;
 	}
 	
 	//just check if a move is possible, don't actually do it
 	public boolean transientmove(Piece p, Square s) {
-		//kings have their own unique movement stuff that actually already checks for all this
-		//so just use their method!
-		if(p instanceof King)
-			return ((King) p).transientMoveTo(s.column, s.row, this);
-		
-		/* Steps:
-		 * 1 - save the old piece and en passant
-		 * 2 - check if you can actually move there
-		 * 3 - move there (temporarily)
-		 * 4 - check for opposing check
-		 * 5 - undo move new piece
-		 * 6 - replace old piece and en passant
-		 * 7 - return findings
-		 */
-		
-		boolean hm = true;
-		if(p instanceof Pawn)
-			hm = ((Pawn) p).hasmoved;
-		if(p instanceof Rook)
-			hm = ((Rook) p).hasmoved;
+		if(p == null)
+			return false;
+		
+		return isLegal(toMove(p.getColumn(), p.getRow(), s.column, s.row, ""));
+	}
+	public boolean transientmove(int oc, int or, int nc, int nr) {
+		return transientmove(board[oc][or].p, board[nc][nr]);
+	}
+	public boolean transientmove(Square os, Square ns) {
+		return transientmove(os.p, ns);
+	}
+	
+	/**
+	 * 
+	 * @param oc
+	 * @param or
+	 * @param nc
+	 * @param nr
+	 * @param promote
+	 * @return Returns the encoded move for the piece on [oc,or] going to [nc,nr], with its flags worked out from the board
+	 * 
+	 * The move is not checked here, use isLegal for that.
+	 */
+	public int toMove(int oc, int or, int nc, int nr, String promote) {
+		
+		int from = Bitboards.square(oc, or), to = Bitboards.square(nc, nr);
+		int code = mailbox[from];
 		
+		if(code == EMPTY || from == to)
+			return Move.NONE;
 		
-		//1 - save the old piece
-		Piece prev = s.p;
-		Pawn ep = en_passant;
+		int type = code % 6;
+		int flags = (mailbox[to] != EMPTY) ? Move.CAPTURE : 0;
+		int promotion = 0;
 		
-		//2 - check if you can actually move there
-		if(!p.moveTo(s.column, s.row, this))
+		if(type == Piece.PAWN) {
+			
+			if(nr == 0 || nr == 7)
+				promotion = promotionType(promote);
+			
+			if(Math.abs(nr - or) == 2)
+				flags |= Move.DOUBLE_PUSH;
+			
+			if(to == ep_square && nc != oc)
+				flags |= Move.EN_PASSANT | Move.CAPTURE;
+		}
+		
+		else if(type == Piece.KING && Math.abs(nc - oc) == 2)
+			flags |= Move.CASTLE;
+		
+		return Move.encode(from, to, promotion, flags);
+	}
+	
+	//turns the promotion text from the command line into a piece type, queen if it isn't recognized
+	public static int promotionType(String promote) {
+		
+		if(promote == null)
+			return Piece.QUEEN;
+		
+		switch(promote.toLowerCase()) {
+		
+			case "rook": case "r":
+				return Piece.ROOK;
+			case "knight": case "n":
+				return Piece.KNIGHT;
+			case "bishop": case "b":
+				return Piece.BISHOP;
+			default:
+				return Piece.QUEEN;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param move
+	 * @return Returns true if the move follows the way its piece moves, without checking if it leaves its own king in check
+	 * 
+	 * Nothing on the board is changed.
+	 */
+	public boolean isPseudoLegal(int move) {
+		
+		if(move == Move.NONE)
 			return false;
 		
-		//3 - move there (temporarily)
-		int oldc = p.getColumn(), oldr = p.getRow();
-		movePiece(p.getColumn(), p.getRow(), s.column, s.row);
+		int from = Move.from(move), to = Move.to(move);
+		int code = mailbox[from];
 		
-		//4 - check for opposing check
-		boolean ret = !inCheck(p.getColor());
+		if(code == EMPTY)
+			return false;
 		
-		//System.out.println("In check after " + p + " to " + s.pos() + ": " + inCheck(p.color));
+		int side = code / 6, type = code % 6;
+		long target = Bitboards.bit(to);
 		
-		//5 - undo move new piece
-		movePiece(s.column, s.row, oldc, oldr);
-		if(!hm) {
-			if(p instanceof Pawn)
-				((Pawn) p).hasmoved = hm;
-			else if(p instanceof Rook)
-				((Rook) p).hasmoved = hm;
+		//can't land on your own piece
+		if((occupancy[side] & target) != 0)
+			return false;
+		
+		int lastrow = (side == Bitboards.WHITE) ? 7 : 0;
+		if((Move.promotion(move) != 0) != (type == Piece.PAWN && Bitboards.row(to) == lastrow))
+			return false;
+		
+		if(Move.isCastle(move))
+			return type == Piece.KING && canCastle(side, to);
+		
+		if(type == Piece.PAWN) {
+			
+			int dir = (side == Bitboards.WHITE) ? 8 : -8;
+			
+			if(Move.isEnPassant(move))
+				return to == ep_square && (Bitboards.pawnAttacks(side, from) & target) != 0;
+			
+			if((Bitboards.pawnAttacks(side, from) & target) != 0)
+				return (occupancy[side ^ 1] & target) != 0;
+			
+			if(to == from + dir)
+				return (occupied & target) == 0;
+			
+			int startrow = (side == Bitboards.WHITE) ? 1 : 6;
+			return to == from + 2 * dir && Bitboards.row(from) == startrow
+					&& (occupied & (target | Bitboards.bit(from + dir))) == 0;
 		}
 		
-		//6 - replace old piece and en passant
-		addPiecePlay(s.column, s.row, prev);
-		en_passant = ep;
+		return (Bitboards.attacks(type, side, from, occupied) & target) != 0;
+	}
+	
+	//castling: the right hasn't been lost, the path is clear, and the king doesn't start in or pass through check
+	boolean canCastle(int side, int to) {
 		
-		//7 - return findings
-		return ret;
+		int home = (side == Bitboards.WHITE) ? 4 : 60;
+		boolean kingside = to == home + 2;
 		
+		if(!kingside && to != home - 2)
+			return false;
+		
+		int right = (side == Bitboards.WHITE) ? (kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE)
+				: (kingside ? BLACK_KINGSIDE : BLACK_QUEENSIDE);
+		
+		if((castling & right) == 0 || mailbox[home] != side * 6 + Piece.KING)
+			return false;
+		
+		int rook = kingside ? home + 3 : home - 4;
+		if(mailbox[rook] != side * 6 + Piece.ROOK)
+			return false;
+		
+		//everything strictly between the king and the rook has to be empty
+		long between = kingside ? (0x3L << (home + 1)) : (0x7L << (home - 3));
+		if((occupied & between) != 0)
+			return false;
+		
+		int pass = kingside ? home + 1 : home - 1;
+		return !attacked(home, side ^ 1) && !attacked(pass, side ^ 1);
 	}
-	public boolean transientmove(int oc, int or, int nc, int nr) {
-		return transientmove(board[oc][or].p, board[nc][nr]);
+	
+	/**
+	 * 
+	 * @param move
+	 * @return Returns true if the move can be made and doesn't leave the mover's own king in check
+	 * 
+	 * Nothing is played to find out, the king is checked against the occupancy the move would leave.
+	 */
+	public boolean isLegal(int move) {
+		return isPseudoLegal(move) && MoveGenerator.leavesKingSafe(this, move, mailbox[Move.from(move)] / 6);
 	}
-	public boolean transientmove(Square os, Square ns) {
-		return transientmove(os.p, ns);
+	
+	/**
+	 * 
+	 * @param move
+	 * 
+	 * Plays a move on the board, saving everything needed to take it back on the undo stack.
+	 * The move has to be at least pseudo legal, nothing is checked here.
+	 */
+	public void makeMove(int move) {
+		
+		int from = Move.from(move), to = Move.to(move);
+		int fc = Bitboards.column(from), fr = Bitboards.row(from);
+		int tc = Bitboards.column(to), tr = Bitboards.row(to);
+		
+		Piece piece = board[fc][fr].p;
+		int side = Bitboards.side(piece.getColor());
+		
+		if(ply == undo_move.length)
+			growUndo();
+		
+		//save what can't be worked out from the move itself
+		undo_move[ply] = move;
+		undo_piece[ply] = piece;
+		undo_castling[ply] = castling;
+		undo_ep[ply] = ep_square;
+		undo_en_passant[ply] = en_passant;
+		undo_halfmove[ply] = halfmove_clock;
+		undo_hasmoved[ply] = hasMoved(piece);
+		undo_key[ply] = key;
+		
+		//the pieces update the key as they move, the rest of the state is swapped out here and back in at the end
+		key ^= Zobrist.CASTLING[castling] ^ epKey();
+		
+		//take the captured piece out of play
+		Piece captured;
+		if(Move.isEnPassant(move))
+			captured = removePiece(tc, fr);
+		else
+			captured = removePiece(tc, tr);
+		undo_captured[ply] = captured;
+		
+		//move the piece itself
+		board[fc][fr].removePiece();
+		clearBits(piece, fc, fr);
+		board[tc][tr].putPiece(piece);
+		setBits(piece, tc, tr);
+		setMoved(piece, true);
+		
+		int promotion = Move.promotion(move);
+		if(promotion != 0) {
+			
+			//swap the pawn for its promoted piece, reusing the one made last time this ply promoted if it fits
+			Piece promoted = undo_promoted[ply];
+			if(promoted == null || promoted.getType() != promotion || promoted.getColor() != piece.getColor()) {
+				promoted = newPiece(promotion, tc, tr, piece.getColor());
+				undo_promoted[ply] = promoted;
+			}
+			
+			board[tc][tr].removePiece();
+			clearBits(piece, tc, tr);
+			(side == Bitboards.WHITE ? white_pieces : black_pieces).remove(piece);
+			
+			addPiecePlay(tc, tr, promoted);
+		}
+		
+		else if(Move.isCastle(move)) {
+			
+			//bring the rook over to the other side of the king
+			int rookfrom = (tc > fc) ? 7 : 0;
+			int rookto = (tc > fc) ? tc - 1 : tc + 1;
+			
+			movePiece(rookfrom, tr, rookto, tr);
+			setMoved(board[rookto][tr].p, true);
+		}
+		
+		castling &= CASTLE_MASK[from] & CASTLE_MASK[to];
+		
+		if(Move.isDoublePush(move)) {
+			ep_square = (from + to) >>> 1;
+			en_passant = (Pawn)piece;
+		}
+		else {
+			ep_square = -1;
+			en_passant = null;
+		}
+		
+		if(piece instanceof Pawn || captured != null)
+			halfmove_clock = 0;
+		else
+			halfmove_clock++;
+		
+		if(side == Bitboards.BLACK)
+			fullmove_number++;
+		
+		turn = Bitboards.color(side ^ 1);
+		key ^= Zobrist.CASTLING[castling] ^ Zobrist.SIDE ^ epKey();
+		ply++;
+	}
+	
+	/**
+	 * 
+	 * @return Returns the last move made with makeMove, or Move.NONE if there is none to take back
+	 */
+	public int lastMove() {
+		return (ply > 0) ? undo_move[ply - 1] : Move.NONE;
+	}
+	
+	/**
+	 * Takes back the last move made with makeMove, restoring the board exactly as it was
+	 */
+	public void unmakeMove() {
+		
+		ply--;
+		
+		int move = undo_move[ply];
+		int from = Move.from(move), to = Move.to(move);
+		int fc = Bitboards.column(from), fr = Bitboards.row(from);
+		int tc = Bitboards.column(to), tr = Bitboards.row(to);
+		
+		Piece piece = undo_piece[ply];
+		
+		if(Move.promotion(move) != 0) {
+			
+			//take the promoted piece back out of play and put the pawn back in
+			removePiece(tc, tr);
+			(piece.getColor() == 'w' ? white_pieces : black_pieces).add(piece);
+		}
+		
+		else {
+			
+			board[tc][tr].removePiece();
+			clearBits(piece, tc, tr);
+			
+			if(Move.isCastle(move)) {
+				
+				int rookfrom = (tc > fc) ? 7 : 0;
+				int rookto = (tc > fc) ? tc - 1 : tc + 1;
+				
+				setMoved(board[rookto][tr].p, false);
+				movePiece(rookto, tr, rookfrom, tr);
+			}
+		}
+		
+		board[fc][fr].putPiece(piece);
+		setBits(piece, fc, fr);
+		setMoved(piece, undo_hasmoved[ply]);
+		
+		//the captured piece goes back where it was taken
+		Piece captured = undo_captured[ply];
+		if(captured != null) {
+			addPiecePlay(tc, Move.isEnPassant(move) ? fr : tr, captured);
+			undo_captured[ply] = null;
+		}
+		
+		castling = undo_castling[ply];
+		ep_square = undo_ep[ply];
+		en_passant = undo_en_passant[ply];
+		halfmove_clock = undo_halfmove[ply];
+		key = undo_key[ply];
+		
+		if(piece.getColor() == 'b')
+			fullmove_number--;
+		
+		turn = piece.getColor();
+	}
+	
+	/**
+	 * 
+	 * @return Returns the Zobrist key of the position worked out from scratch
+	 * 
+	 * Only used when a board is set up, or to check the running key. Moves keep key up to date themselves.
+	 */
+	public long computeKey() {
+		
+		long k = Zobrist.CASTLING[castling] ^ epKey();
+		
+		if(turn == 'b')
+			k ^= Zobrist.SIDE;
+		
+		for(int sq = 0; sq < 64; sq++)
+			if(mailbox[sq] != EMPTY)
+				k ^= Zobrist.piece(mailbox[sq], sq);
+		
+		return k;
+	}
+	
+	//the pawn key worked out from scratch, to check the running one
+	public long computePawnKey() {
+		
+		long k = 0L;
+		
+		for(long bb = pieces[Piece.PAWN] | pieces[6 + Piece.PAWN]; bb != 0; bb &= bb - 1) {
+			int sq = Long.numberOfTrailingZeros(bb);
+			k ^= Zobrist.piece(mailbox[sq], sq);
+		}
+		
+		return k;
+	}
+	
+	//the en passant file only counts toward the key when the side to move has a pawn that could take there
+	private long epKey() {
+		
+		if(ep_square < 0)
+			return 0L;
+		
+		int side = Bitboards.side(turn);
+		if((Bitboards.pawnAttacks(side ^ 1, ep_square) & pieces[side * 6 + Piece.PAWN]) == 0)
+			return 0L;
+		
+		return Zobrist.EN_PASSANT[Bitboards.column(ep_square)];
+	}
+	
+	/**
+	 * 
+	 * @return Returns true if the current position already came up earlier in the game, with the same side to move
+	 * 
+	 * Only looks back as far as the last capture or pawn move, since nothing before that can repeat.
+	 */
+	public boolean isRepeated() {
+		
+		for(int i = ply - 2; i >= 0 && i >= ply - halfmove_clock; i -= 2)
+			if(undo_key[i] == key)
+				return true;
+		
+		return false;
+	}
+	
+	//how many times the current position came up before in the game, with the same side to move
+	public int repetitions() {
+		
+		int count = 0;
+		
+		for(int i = ply - 2; i >= 0 && i >= ply - halfmove_clock; i -= 2)
+			if(undo_key[i] == key)
+				count++;
+		
+		return count;
+	}
+	
+	//doubles the undo stack when a game goes on longer than it was sized for
+	private void growUndo() {
+		int size = undo_move.length * 2;
+		
+		undo_move = Arrays.copyOf(undo_move, size);
+		undo_piece = Arrays.copyOf(undo_piece, size);
+		undo_captured = Arrays.copyOf(undo_captured, size);
+		undo_promoted = Arrays.copyOf(undo_promoted, size);
+		undo_castling = Arrays.copyOf(undo_castling, size);
+		undo_ep = Arrays.copyOf(undo_ep, size);
+		undo_en_passant = Arrays.copyOf(undo_en_passant, size);
+		undo_halfmove = Arrays.copyOf(undo_halfmove, size);
+		undo_hasmoved = Arrays.copyOf(undo_hasmoved, size);
+		undo_key = Arrays.copyOf(undo_key, size);
+	}
+	
+	//the hasmoved flags on pawns, rooks and kings are kept up to date for the older Piece methods
+	private static boolean hasMoved(Piece p) {
+		if(p instanceof Pawn)
+			return ((Pawn) p).hasmoved;
+		if(p instanceof Rook)
+			return ((Rook) p).hasmoved;
+		if(p instanceof King)
+			return ((King) p).hasmoved;
+		return true;
+	}
+	private static void setMoved(Piece p, boolean moved) {
+		if(p instanceof Pawn)
+			((Pawn) p).hasmoved = moved;
+		else if(p instanceof Rook)
+			((Rook) p).hasmoved = moved;
+		else if(p instanceof King)
+			((King) p).hasmoved = moved;
+	}
+	
+	//makes a new piece of any type
+	public static Piece newPiece(int type, int c, int r, char color) {
+		switch(type) {
+		
+			case Piece.PAWN:
+				return new Pawn(c, r, color);
+			case Piece.KNIGHT:
+				return new Knight(c, r, color);
+			case Piece.BISHOP:
+				return new Bishop(c, r, color);
+			case Piece.ROOK:
+				Rook rook = new Rook(c, r, color);
+				rook.hasmoved = true;
+				return rook;
+			case Piece.QUEEN:
+				return new Queen(c, r, color);
+			default:
+				return new King(c, r, color);
+		}
 	}
 	
 	public void Promotion(String promote, int column, int row) {
 		
+		//white promotes on the top row, black on the bottom
+		char color = (row == 7) ? 'w' : 'b';
+		
 		switch(promote.toLowerCase()) {
 
 			case "rook":
 				//rook
-				Rook rook = new Rook(column, row);
+				Rook rook = new Rook(column, row, color);
+				rook.hasmoved = true;
 				addPiecePlay(rook.getColumn(), rook.getRow(), rook);
 				break;
 	
 			case "knight":
 				//knight
-				Knight n = new Knight(column, row);
+				Knight n = new Knight(column, row, color);
 				addPiecePlay(n.getColumn(), n.getRow(), n);
 				break;
 	
 			case "bishop":
 				//bishop
-				Bishop b = new Bishop(column, row);
+				Bishop b = new Bishop(column, row, color);
 				addPiecePlay(b.getColumn(), b.getRow(), b);
 				break;
 	
 			default:
 				//YASSS QUEEN
-				Queen q = new Queen(column, row);
+				Queen q = new Queen(column, row, color);
 				addPiecePlay(q.getColumn(), q.getRow(), q);
 				break;
 	
@@ -406,73 +1291,14 @@ public class Board {
 	
 	// where you determine if there's checkmate or not;
 	public boolean resolve_check(List<Piece> checks, King k) {
-
-			ArrayList<Square> king_spots = k.getAllMoves(this);
-
-			if(king_spots.size() > 0)
-				return false;
-
-			System.out.println("got here");
-			
-			//with double check, the only possible way to escape is for the king move to a safe spot.
-			if(checks.size() < 2) {
-				
-				List<Piece> ally = new ArrayList<Piece>();
-				List<Piece> enemy = new ArrayList<Piece>();
-				
-				if(k.getColor() == 'w') {
-					
-					ally = white_pieces;
-					ally.remove(white_king);
-					enemy = black_pieces;
-					enemy.remove(black_king);
-				}
-				
-				else {
-					
-					ally = black_pieces;
-					ally.remove(black_king);
-					enemy = white_pieces;
-					enemy.remove(white_king);
-				}
-				
-				Piece threat = checks.get(0);
-				List<Piece> eliminate_check = threatens_spot(ally, checks.get(0).getColumn(), checks.get(0).getRow());
-				List<Piece> blocks_check = filter(ally, p -> p.canBlockPiece(threat, (Piece)k, this));
-
-				if(!eliminate_check.isEmpty() || !blocks_check.isEmpty())
-					return false;
-			}
-
-			return true;
-		}
-	public boolean canMove(char c) {
-		ArrayList<Square> allPieces = new ArrayList<Square>();
-		
-		for(Piece p: ((c == 'w') ? white_pieces : black_pieces)) {
-			allPieces.add(new Square(p.getColumn(), p.getRow()));
-		}
-		
-		//System.out.println(allPieces.size());
-		
-		for(Square loc: allPieces) {
-			Piece p = board[loc.column][loc.row].p;
-			
-			if(p == null) {
-				//System.out.println(loc.pos());
-				continue;
-			}
-			
-			for(Square s: p.getAllMoves(this))
-				if(transientmove(p,s)) {
-					//System.out.println(p + " to " + s.pos());
-					return true;
-				}
-		}
-		
 		
-		
-		return false;
+		//checks from the older code are only used to tell whether there is a check at all, the generator finds
+		//captures, blocks and king moves itself
+		return !checks.isEmpty() && !canMove(k.getColor());
+	}
+	
+	public boolean canMove(char c) {
+		return MoveGenerator.hasLegalMove(this, Bitboards.side(c), move_buffer, 0);
 	}
 	
 	//methods to find what pieces threaten a certain spot
@@ -498,25 +1324,201 @@ public class Board {
 	
 	//checks if a color is in check, or if a general piece of a color in a square would be threatened
 	public boolean inCheck(char c) {
-		King k = (c == 'w') ? white_king : black_king;
+		int side = Bitboards.side(c);
+		long king = pieces[side * 6 + Piece.KING];
 		
-		return threatened(k.getColumn(), k.getRow(), c);
+		if(king == 0)
+			return false;
+		
+		//use the attack map if something already built it for this position, it isn't worth building for one square
+		if((attacks_valid & (1 << (side ^ 1))) != 0)
+			return (attack_maps[side ^ 1] & king) != 0;
+		
+		return attacked(Long.numberOfTrailingZeros(king), side ^ 1);
 	}
 	public boolean threatened(int c, int r, char color) {
 
-		if(color == 'w') {
-			for(Piece p: black_pieces)
-				if(p.threatens(c, r, this))
-					return true;
-		}
+		if(color != 'w' && color != 'b')
+			return false;
 
-		if(color == 'b') {
-			for(Piece p: white_pieces)
-				if(p.threatens(c, r, this))
-					return true;
+		return (attackMap(Bitboards.side(color) ^ 1) & Bitboards.bit(Bitboards.square(c, r))) != 0;
+	}
+	
+	/**
+	 * 
+	 * @param side
+	 * @return Returns every square side attacks
+	 * 
+	 * Built the first time it's asked for in a position and kept until a piece moves, so asking about
+	 * many squares (like every square a king might step to) only walks the pieces once.
+	 */
+	public long attackMap(int side) {
+		
+		if((attacks_valid & (1 << side)) == 0) {
+			attack_maps[side] = attackMap(side, occupied);
+			attacks_valid |= 1 << side;
 		}
 		
-		return false;
+		return attack_maps[side];
+	}
+	
+	/**
+	 * 
+	 * @param side
+	 * @param occ
+	 * @return Returns every square side attacks if the board had occupancy occ, this one isn't cached
+	 * 
+	 * Taking a king out of occ gives the squares it can't step to, since it can't hide behind itself from a slider.
+	 */
+	public long attackMap(int side, long occ) {
+		int o = side * 6;
+		long map = Bitboards.allPawnAttacks(side, pieces[o + Piece.PAWN]);
+		
+		for(int type = Piece.KNIGHT; type <= Piece.KING; type++)
+			for(long bb = pieces[o + type]; bb != 0; bb &= bb - 1)
+				map |= Bitboards.attacks(type, side, Long.numberOfTrailingZeros(bb), occ);
+		
+		return map;
+	}
+	
+	/**
+	 * 
+	 * @param sq
+	 * @param by
+	 * @return Returns true if any piece of side by attacks square sq
+	 * 
+	 * Works backwards from the square: a knight on sq would see exactly the enemy knights that attack it, and so on.
+	 */
+	public boolean attacked(int sq, int by) {
+		int o = by * 6;
+		
+		if((Bitboards.pawnAttacks(by ^ 1, sq) & pieces[o + Piece.PAWN]) != 0)
+			return true;
+		if((Bitboards.knightAttacks(sq) & pieces[o + Piece.KNIGHT]) != 0)
+			return true;
+		if((Bitboards.kingAttacks(sq) & pieces[o + Piece.KING]) != 0)
+			return true;
+		
+		long queens = pieces[o + Piece.QUEEN];
+		if((Bitboards.bishopAttacks(sq, occupied) & (pieces[o + Piece.BISHOP] | queens)) != 0)
+			return true;
+		
+		return (Bitboards.rookAttacks(sq, occupied) & (pieces[o + Piece.ROOK] | queens)) != 0;
+	}
+	
+	/**
+	 * 
+	 * @param sq
+	 * @param by
+	 * @param occ
+	 * @return Returns a mask of every piece of side by attacking sq, given the occupancy occ
+	 */
+	public long attackers(int sq, int by, long occ) {
+		int o = by * 6;
+		long queens = pieces[o + Piece.QUEEN];
+		
+		return (Bitboards.pawnAttacks(by ^ 1, sq) & pieces[o + Piece.PAWN])
+				| (Bitboards.knightAttacks(sq) & pieces[o + Piece.KNIGHT])
+				| (Bitboards.kingAttacks(sq) & pieces[o + Piece.KING])
+				| (Bitboards.bishopAttacks(sq, occ) & (pieces[o + Piece.BISHOP] | queens))
+				| (Bitboards.rookAttacks(sq, occ) & (pieces[o + Piece.ROOK] | queens));
+	}
+	
+	/**
+	 * 
+	 * @param move
+	 * @return Returns how much material the side making move comes out ahead by, in centipawns, if every piece
+	 * attacking the square it goes to captures there in turn, least valuable first, and either side stops as soon as
+	 * carrying on would lose more
+	 * 
+	 * Works on attack bitboards only, nothing is moved. Taking a piece out of the occupancy uncovers any slider
+	 * behind it, so x-ray attackers join the exchange when their turn comes. Pins are ignored.
+	 */
+	public int see(int move) {
+		
+		int from = Move.from(move), to = Move.to(move);
+		int side = mailbox[from] / 6;
+		int[] gain = see_gain;
+		
+		int type = mailbox[from] % 6;
+		gain[0] = Move.isEnPassant(move) ? SEE_VALUE[Piece.PAWN] : (mailbox[to] == EMPTY) ? 0 : SEE_VALUE[mailbox[to] % 6];
+		
+		if(Move.promotion(move) != 0) {
+			type = Move.promotion(move);
+			gain[0] += SEE_VALUE[type] - SEE_VALUE[Piece.PAWN];
+		}
+		
+		long occ = occupied ^ Bitboards.bit(from);
+		if(Move.isEnPassant(move))
+			occ ^= Bitboards.bit(to + ((side == Bitboards.WHITE) ? -8 : 8));
+		
+		long diagonal = pieces[Piece.BISHOP] | pieces[Piece.QUEEN] | pieces[6 + Piece.BISHOP] | pieces[6 + Piece.QUEEN];
+		long straight = pieces[Piece.ROOK] | pieces[Piece.QUEEN] | pieces[6 + Piece.ROOK] | pieces[6 + Piece.QUEEN];
+		long attackers = (attackers(to, Bitboards.WHITE, occ) | attackers(to, Bitboards.BLACK, occ)) & occ;
+		
+		int d = 0;
+		for(int s = side ^ 1; ; s ^= 1) {
+			
+			long mine = attackers & occupancy[s];
+			if(mine == 0)
+				break;
+			
+			//the least valuable attacker goes next
+			int next = Piece.PAWN;
+			while((mine & pieces[s * 6 + next]) == 0)
+				next++;
+			long bit = Long.lowestOneBit(mine & pieces[s * 6 + next]);
+			
+			//what s would be up if it took the piece on the square and that was the end of it
+			d++;
+			gain[d] = SEE_VALUE[type] - gain[d - 1];
+			
+			//not worth it for s, and stopping here can't be worse for the other side either
+			if(Math.max(-gain[d - 1], gain[d]) < 0) {
+				d--;
+				break;
+			}
+			
+			occ ^= bit;
+			type = next;
+			
+			//anything the piece was standing in front of
+			if(next == Piece.PAWN || next == Piece.BISHOP || next >= Piece.QUEEN)
+				attackers |= Bitboards.bishopAttacks(to, occ) & diagonal;
+			if(next == Piece.ROOK || next >= Piece.QUEEN)
+				attackers |= Bitboards.rookAttacks(to, occ) & straight;
+			attackers &= occ;
+		}
+		
+		//each side picks the better of capturing and stopping, from the end of the exchange back to the start
+		for(; d > 0; d--)
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+		
+		return gain[0];
+	}
+	
+	/**
+	 * 
+	 * @param side
+	 * @return Returns a mask of side's pieces, other than the king, that the other side can win material by taking
+	 * 
+	 * That's a piece attacked and not defended enough, or attacked by something worth less than it is.
+	 */
+	public long hanging(int side) {
+		
+		long result = 0L;
+		
+		for(long bb = occupancy[side] & ~pieces[side * 6 + Piece.KING]; bb != 0; bb &= bb - 1) {
+			int sq = Long.numberOfTrailingZeros(bb);
+			
+			for(long a = attackers(sq, side ^ 1, occupied); a != 0; a &= a - 1)
+				if(see(Move.encode(Long.numberOfTrailingZeros(a), sq, 0, Move.CAPTURE)) > 0) {
+					result |= Bitboards.bit(sq);
+					break;
+				}
+		}
+		
+		return result;
 	}
 	
 	//to check if there's a piece at a given spot on the board
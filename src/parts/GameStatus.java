@@ -0,0 +1,158 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Decides whether a game is over: checkmate, stalemate, threefold repetition, the fifty-move rule or not enough
+ * material left to mate.
+ *
+ * Mate, stalemate and material only depend on the position, so those answers are cached by the board's key. The
+ * cache is two plain long arrays with the key stored XORed with the answer, like engine.TranspositionTable, so one
+ * GameStatus can be shared by every game on a server without locking. Repetition and the fifty-move rule depend on
+ * the game's history and are checked every time, they only cost a look at the clock and the undo stack.
+ */
+public class GameStatus {
+
+	public static final int ONGOING = 0;
+	public static final int CHECKMATE = 1;
+	public static final int STALEMATE = 2;
+	public static final int REPETITION = 3;
+	public static final int FIFTY_MOVES = 4;
+	public static final int INSUFFICIENT_MATERIAL = 5;
+
+	private static final String[] NAMES = {"Ongoing", "Checkmate", "Stalemate", "Draw by threefold repetition",
+			"Draw by the fifty-move rule", "Draw by insufficient material"};
+
+	//light and dark squares, for bishops that can never meet
+	private static final long LIGHT = 0x55AA55AA55AA55AAL;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+
+	//instrumentation, not synchronized, so only approximate when several threads share the cache
+	public long probes, hits;
+
+	/**
+	 *
+	 * @param entries
+	 *
+	 * Makes a cache of at least one entry, rounded down to a power of two
+	 */
+	public GameStatus(int entries) {
+		int size = Integer.highestOneBit(Math.max(1, entries));
+
+		keys = new long[size];
+		data = new long[size];
+		mask = size - 1;
+	}
+	public GameStatus() {
+		this(1 << 16);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns the status of the game on b for the side to move, one of ONGOING through INSUFFICIENT_MATERIAL
+	 *
+	 * A mate on the board counts even if the fifty-move or repetition draw happened on the same move.
+	 */
+	public int status(Board b) {
+
+		int position = positionStatus(b);
+
+		if(position == CHECKMATE)
+			return CHECKMATE;
+		if(b.halfmove_clock >= 100)
+			return FIFTY_MOVES;
+		if(b.repetitions() >= 2)
+			return REPETITION;
+
+		return position;
+	}
+
+	//mate, stalemate or material, from the cache if it's there
+	private int positionStatus(Board b) {
+
+		probes++;
+		int i = (int)b.key & mask;
+
+		//stored results are 1 higher so an empty slot never matches
+		long d = data[i];
+		if(d != 0 && (keys[i] ^ d) == b.key) {
+			hits++;
+			return (int)d - 1;
+		}
+
+		int s = compute(b);
+
+		d = s + 1;
+		keys[i] = b.key ^ d;
+		data[i] = d;
+
+		return s;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns CHECKMATE, STALEMATE, INSUFFICIENT_MATERIAL or ONGOING for the position alone, without the cache
+	 *
+	 * Stops at the first legal move found, and usually doesn't need to generate any.
+	 */
+	public static int compute(Board b) {
+
+		int side = Bitboards.side(b.turn);
+
+		if(!MoveGenerator.hasLegalMove(b, side, b.move_buffer, 0))
+			return b.inCheck(b.turn) ? CHECKMATE : STALEMATE;
+
+		return insufficientMaterial(b) ? INSUFFICIENT_MATERIAL : ONGOING;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns true if neither side could ever mate: bare kings, a single knight or bishop, or only bishops
+	 * that all stand on the same color
+	 */
+	public static boolean insufficientMaterial(Board b) {
+
+		long heavy = 0L;
+		for(int side = Bitboards.WHITE; side <= Bitboards.BLACK; side++)
+			heavy |= b.pieces[side * 6 + Piece.PAWN] | b.pieces[side * 6 + Piece.ROOK] | b.pieces[side * 6 + Piece.QUEEN];
+
+		if(heavy != 0)
+			return false;
+
+		long knights = b.pieces[Piece.KNIGHT] | b.pieces[6 + Piece.KNIGHT];
+		long bishops = b.pieces[Piece.BISHOP] | b.pieces[6 + Piece.BISHOP];
+
+		if(Long.bitCount(knights | bishops) <= 1)
+			return true;
+
+		return knights == 0 && ((bishops & LIGHT) == 0 || (bishops & ~LIGHT) == 0);
+	}
+
+	public static boolean isOver(int status) {
+		return status != ONGOING;
+	}
+
+	public static boolean isDraw(int status) {
+		return status >= STALEMATE;
+	}
+
+	public static String name(int status) {
+		return NAMES[status];
+	}
+
+	public double hitRate() {
+		return (probes == 0) ? 0 : (double)hits / probes;
+	}
+
+	public String stats() {
+		return "probes " + probes + ", hits " + hits + " (" + Math.round(hitRate() * 1000) / 10.0 + "%)";
+	}
+}
@@ -42,20 +42,6 @@ public class King extends Piece {
 	    King o = (King) obj;
 	    return this.row == o.row && this.column == o.column;
 	}
-
-	@Override
-	public boolean threatens(int c, int r, Board b) {
-
-		if(c == column && r == row)
-			return false;
-
-		if(b.onBoard(c,r))
-			if(Math.abs(c-column) < 2 && Math.abs(r-row) < 2)
-				return true;
-
-		return false;
-
-	}
 	
 	public boolean moveTo(int c, int r, Board b) {
 
@@ -126,8 +112,8 @@ public class King extends Piece {
 				return false;
 			
 		//Apparently, we can now castle
-		Rook partner = (Rook)(b.getTileAt(rookcol, r).removePiece());
-		b.getTileAt(column + dir, r).putPiece(partner);
+		b.movePiece(rookcol, r, column + dir, r);
+		Rook partner = (Rook)b.pieceAt(column + dir, r);
 		partner.hasmoved = true;
 
 		hasmoved = true;
@@ -249,26 +235,6 @@ public class King extends Piece {
 		return getColor() + "K";
 	}
 
-	@Override
-	public ArrayList<Square> getAllMoves(Board b) {
-		// TODO Auto-generated method stub
-		ArrayList<Square> moves = new ArrayList<Square>();
-		Pawn o_pas = b.en_passant;
-
-		for(int col = 0; col < 8; col++) {
-
-			for(int ro = 0; ro < 8; ro++) {
-
-				if(moveTo(col, ro, b)) {
-					b.en_passant = o_pas;
-					moves.add(b.board[col][ro]);
-				}
-			}
-		}
-
-		return moves;
-	}
-
 	public char getColor() {
 		return color;
 	}
@@ -287,4 +253,8 @@ public class King extends Piece {
 	public void setColumn(int c) {
 		column = c;
 	}
+	@Override
+	public int getType() {
+		return KING;
+	}
 }
@@ -0,0 +1,119 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Moves are passed around as plain ints so that they can be stored in arrays without allocating.
+ *
+ * Bits 0-5 hold the square moved from, bits 6-11 the square moved to (see {@link Bitboards#square}),
+ * bits 12-14 the piece type promoted to (0 when not promoting) and the remaining bits the flags below.
+ * The value 0 (a1 to a1) is never a real move and stands for "no move".
+ */
+public final class Move {
+
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1 << 15;
+	public static final int DOUBLE_PUSH = 1 << 16;
+	public static final int EN_PASSANT = 1 << 17;
+	public static final int CASTLE = 1 << 18;
+
+	private Move() {
+	}
+
+	/**
+	 *
+	 * @param from
+	 * @param to
+	 * @param promotion
+	 * @param flags
+	 * @return Returns a move packed into an int
+	 */
+	public static int encode(int from, int to, int promotion, int flags) {
+		return from | (to << 6) | (promotion << 12) | flags;
+	}
+	public static int encode(int from, int to) {
+		return from | (to << 6);
+	}
+
+	public static int from(int move) {
+		return move & 63;
+	}
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & CAPTURE) != 0;
+	}
+	public static boolean isDoublePush(int move) {
+		return (move & DOUBLE_PUSH) != 0;
+	}
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+	public static boolean isCastle(int move) {
+		return (move & CASTLE) != 0;
+	}
+
+	//returns the name of a square, like "e4"
+	public static String squareName(int sq) {
+		return "" + (char)('a' + Bitboards.column(sq)) + (char)('1' + Bitboards.row(sq));
+	}
+
+	/**
+	 *
+	 * @param move
+	 * @return Returns the move in coordinate notation, like "e2e4" or "e7e8q"
+	 */
+	public static String toString(int move) {
+		if(move == NONE)
+			return "0000";
+
+		String ret = squareName(from(move)) + squareName(to(move));
+
+		switch(promotion(move)) {
+		case Piece.KNIGHT:
+			return ret + "n";
+		case Piece.BISHOP:
+			return ret + "b";
+		case Piece.ROOK:
+			return ret + "r";
+		case Piece.QUEEN:
+			return ret + "q";
+		default:
+			return ret;
+		}
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param s
+	 * @return Returns the legal move for the side to move on b written in coordinate notation, like "e2e4" or
+	 * "e7e8q", or NONE if it isn't one
+	 *
+	 * A pawn reaching the last row without a promotion letter promotes to a queen.
+	 */
+	public static int parse(Board b, CharSequence s) {
+
+		if(s.length() < 4 || s.length() > 5)
+			return NONE;
+
+		int oc = s.charAt(0) - 'a', or = s.charAt(1) - '1', nc = s.charAt(2) - 'a', nr = s.charAt(3) - '1';
+		if(!b.onBoard(oc, or) || !b.onBoard(nc, nr))
+			return NONE;
+
+		int from = Bitboards.square(oc, or);
+		if(b.mailbox[from] == Board.EMPTY || b.mailbox[from] / 6 != Bitboards.side(b.turn))
+			return NONE;
+
+		int move = b.toMove(oc, or, nc, nr, (s.length() == 5) ? String.valueOf(s.charAt(4)) : "");
+		return b.isLegal(move) ? move : NONE;
+	}
+}
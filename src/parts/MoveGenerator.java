@@ -0,0 +1,323 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Generates moves for a side straight off the bitboards in {@link Board}.
+ *
+ * Moves are written as ints (see {@link Move}) into an array the caller hands in, starting at a given index,
+ * and the index after the last move written is returned. Nothing is allocated, so a search can keep one big array
+ * and hand each ply the part of it past the moves of the ply before.
+ */
+public final class MoveGenerator {
+
+	//enough for any legal chess position
+	public static final int MAX_MOVES = 256;
+
+	//promotions are tried best first
+	private static final int[] PROMOTIONS = {Piece.QUEEN, Piece.KNIGHT, Piece.ROOK, Piece.BISHOP};
+
+	private MoveGenerator() {
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param side
+	 * @param moves
+	 * @param start
+	 * @return Returns the index after the last move written
+	 *
+	 * Writes every move side could make that follows the way its pieces move, including ones that leave its own king in check.
+	 */
+	public static int pseudoLegal(Board b, int side, int[] moves, int start) {
+
+		int n = start;
+		int o = side * 6;
+
+		for(long pawns = b.pieces[o + Piece.PAWN]; pawns != 0; pawns &= pawns - 1)
+			n = pawnMoves(b, side, Long.numberOfTrailingZeros(pawns), moves, n);
+
+		//everything else moves to the squares it attacks
+		for(int type = Piece.KNIGHT; type <= Piece.KING; type++)
+			for(long bb = b.pieces[o + type]; bb != 0; bb &= bb - 1)
+				n = pieceMoves(b, side, type, Long.numberOfTrailingZeros(bb), moves, n);
+
+		return castles(b, side, moves, n);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param from
+	 * @param moves
+	 * @param start
+	 * @return Returns the index after the last move written
+	 *
+	 * Writes the moves pseudoLegal would give for the piece on from only, nothing if the square is empty.
+	 */
+	public static int pseudoLegalFrom(Board b, int from, int[] moves, int start) {
+
+		int code = b.mailbox[from];
+		if(code == Board.EMPTY)
+			return start;
+
+		int side = code / 6, type = code % 6;
+
+		if(type == Piece.PAWN)
+			return pawnMoves(b, side, from, moves, start);
+
+		int n = pieceMoves(b, side, type, from, moves, start);
+		return (type == Piece.KING) ? castles(b, side, moves, n) : n;
+	}
+
+	//pushes, captures, en passant and promotions of the pawn on from
+	private static int pawnMoves(Board b, int side, int from, int[] moves, int n) {
+
+		long enemy = b.occupancy[side ^ 1], occupied = b.occupied;
+
+		int dir = (side == Bitboards.WHITE) ? 8 : -8;
+		int startrow = (side == Bitboards.WHITE) ? 1 : 6;
+		int lastrow = (side == Bitboards.WHITE) ? 7 : 0;
+		int ep = (Bitboards.side(b.turn) == side) ? b.ep_square : -1;
+
+		int to = from + dir;
+
+		if((occupied & Bitboards.bit(to)) == 0) {
+
+			if(Bitboards.row(to) == lastrow)
+				n = addPromotions(moves, n, from, to, 0);
+
+			else {
+				moves[n++] = Move.encode(from, to);
+
+				if(Bitboards.row(from) == startrow && (occupied & Bitboards.bit(to + dir)) == 0)
+					moves[n++] = Move.encode(from, to + dir, 0, Move.DOUBLE_PUSH);
+			}
+		}
+
+		long attacks = Bitboards.pawnAttacks(side, from);
+
+		for(long captures = attacks & enemy; captures != 0; captures &= captures - 1) {
+
+			to = Long.numberOfTrailingZeros(captures);
+
+			if(Bitboards.row(to) == lastrow)
+				n = addPromotions(moves, n, from, to, Move.CAPTURE);
+			else
+				moves[n++] = Move.encode(from, to, 0, Move.CAPTURE);
+		}
+
+		if(ep >= 0 && (attacks & Bitboards.bit(ep)) != 0)
+			moves[n++] = Move.encode(from, ep, 0, Move.EN_PASSANT | Move.CAPTURE);
+
+		return n;
+	}
+
+	//moves of any other piece on from, to the squares it attacks
+	private static int pieceMoves(Board b, int side, int type, int from, int[] moves, int n) {
+
+		long enemy = b.occupancy[side ^ 1];
+		long targets = Bitboards.attacks(type, side, from, b.occupied) & ~b.occupancy[side];
+
+		for(; targets != 0; targets &= targets - 1) {
+
+			int to = Long.numberOfTrailingZeros(targets);
+			moves[n++] = Move.encode(from, to, 0, ((enemy & Bitboards.bit(to)) != 0) ? Move.CAPTURE : 0);
+		}
+
+		return n;
+	}
+
+	private static int castles(Board b, int side, int[] moves, int n) {
+
+		int home = (side == Bitboards.WHITE) ? 4 : 60;
+
+		if(b.canCastle(side, home + 2))
+			moves[n++] = Move.encode(home, home + 2, 0, Move.CASTLE);
+		if(b.canCastle(side, home - 2))
+			moves[n++] = Move.encode(home, home - 2, 0, Move.CASTLE);
+
+		return n;
+	}
+
+	private static int addPromotions(int[] moves, int n, int from, int to, int flags) {
+		for(int type: PROMOTIONS)
+			moves[n++] = Move.encode(from, to, type, flags);
+		return n;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param side
+	 * @param moves
+	 * @param start
+	 * @return Returns the index after the last move written
+	 *
+	 * Writes every legal move for side. The pieces giving check and the pieces pinned to the king are found first, so
+	 * each move can be judged without playing it: in double check only the king can move, in single check everything
+	 * else has to take the checker or block the line to the king, and a pinned piece has to stay on its pin line.
+	 * King moves are checked against the squares the other side attacks.
+	 */
+	public static int legal(Board b, int side, int[] moves, int start) {
+
+		int end = pseudoLegal(b, side, moves, start);
+		long king = b.pieces[side * 6 + Piece.KING];
+
+		//without a king nothing can be illegal
+		if(king == 0)
+			return end;
+
+		int ksq = Long.numberOfTrailingZeros(king);
+		long danger = kingDanger(b, side);
+		long target = evasionTarget(b, side, ksq);
+		long pinned = pinned(b, side, ksq);
+		int n = start;
+
+		for(int i = start; i < end; i++)
+			if(isLegal(b, moves[i], side, ksq, danger, target, pinned))
+				moves[n++] = moves[i];
+
+		return n;
+	}
+
+	//whether a pseudo legal move is legal, given what legal worked out up front
+	private static boolean isLegal(Board b, int move, int side, int ksq, long danger, long target, long pinned) {
+
+		int from = Move.from(move);
+		long to = Bitboards.bit(Move.to(move));
+
+		if(from == ksq)
+			return (to & danger) == 0;
+
+		//en passant takes a piece off a different square than it lands on, which can uncover the king along the row
+		if(Move.isEnPassant(move))
+			return leavesKingSafe(b, move, side);
+
+		if((to & target) == 0)
+			return false;
+
+		return (pinned & Bitboards.bit(from)) == 0 || (Bitboards.line(ksq, from) & to) != 0;
+	}
+
+	//where a piece other than the king can move: anywhere, onto the checker or between it and the king, or nowhere
+	private static long evasionTarget(Board b, int side, int ksq) {
+
+		long checkers = b.attackers(ksq, side ^ 1, b.occupied);
+
+		if(checkers == 0)
+			return -1L;
+		if((checkers & (checkers - 1)) != 0)
+			return 0L;
+
+		return checkers | Bitboards.between(ksq, Long.numberOfTrailingZeros(checkers));
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param side
+	 * @param ksq
+	 * @return Returns side's pieces that are the only thing between their king on ksq and an enemy slider
+	 */
+	public static long pinned(Board b, int side, int ksq) {
+
+		int o = (side ^ 1) * 6;
+		long enemy = b.occupancy[side ^ 1];
+		long queens = b.pieces[o + Piece.QUEEN];
+
+		//enemy sliders that would see the king if none of side's pieces were in the way
+		long snipers = (Bitboards.rookAttacks(ksq, enemy) & (b.pieces[o + Piece.ROOK] | queens))
+				| (Bitboards.bishopAttacks(ksq, enemy) & (b.pieces[o + Piece.BISHOP] | queens));
+
+		long pinned = 0L;
+
+		for(; snipers != 0; snipers &= snipers - 1) {
+			long blockers = Bitboards.between(ksq, Long.numberOfTrailingZeros(snipers)) & b.occupied;
+
+			if((blockers & (blockers - 1)) == 0 && (blockers & b.occupancy[side]) != 0)
+				pinned |= blockers;
+		}
+
+		return pinned;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param move
+	 * @param side
+	 * @return Returns true if the pseudo legal move doesn't leave side's king attacked
+	 *
+	 * Looks at the occupancy the move would leave behind, ignoring whatever it captures, instead of making it.
+	 * For castling only the king's landing square is looked at, canCastle already covers the rest.
+	 */
+	static boolean leavesKingSafe(Board b, int move, int side) {
+
+		int from = Move.from(move), to = Move.to(move);
+		long king = b.pieces[side * 6 + Piece.KING];
+
+		if(king == 0)
+			return true;
+
+		long captured = Bitboards.bit(to);
+		if(Move.isEnPassant(move))
+			captured = Bitboards.bit(to + ((side == Bitboards.WHITE) ? -8 : 8));
+
+		long occ = (b.occupied & ~Bitboards.bit(from) & ~captured) | Bitboards.bit(to);
+		int sq = ((king & Bitboards.bit(from)) != 0) ? to : Long.numberOfTrailingZeros(king);
+
+		return (b.attackers(sq, side ^ 1, occ) & ~captured) == 0;
+	}
+
+	//squares the king of side can't move to: everything the other side attacks, seeing through the king itself
+	private static long kingDanger(Board b, int side) {
+		return b.attackMap(side ^ 1, b.occupied & ~b.pieces[side * 6 + Piece.KING]);
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param side
+	 * @param moves
+	 * @param start
+	 * @return Returns true as soon as one legal move for side is found
+	 *
+	 * moves is only used as scratch space.
+	 */
+	public static boolean hasLegalMove(Board b, int side, int[] moves, int start) {
+
+		long king = b.pieces[side * 6 + Piece.KING];
+
+		if(king == 0)
+			return pseudoLegal(b, side, moves, start) > start;
+
+		//most of the time the king has a safe square, and that settles it without generating anything
+		int ksq = Long.numberOfTrailingZeros(king);
+		if((Bitboards.kingAttacks(ksq) & ~b.occupancy[side] & ~kingDanger(b, side)) != 0)
+			return true;
+
+		//the king is stuck, so in double check that's mate
+		long target = evasionTarget(b, side, ksq);
+		if(target == 0)
+			return false;
+
+		long pinned = pinned(b, side, ksq);
+		int end = pseudoLegal(b, side, moves, start);
+
+		for(int i = start; i < end; i++) {
+
+			//the king's own moves were all ruled out above
+			if(Move.from(moves[i]) == ksq)
+				continue;
+
+			if(isLegal(b, moves[i], side, ksq, 0L, target, pinned))
+				return true;
+		}
+
+		return false;
+	}
+}
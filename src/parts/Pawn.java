@@ -64,24 +64,6 @@ public class Pawn extends Piece {
 		return getColor() + "P";
 	}
 
-	@Override
-	/**
-	 * Threatens method for Pawn
-	 */
-	public boolean threatens(int c, int r, Board board) {
-		if(!board.onBoard(c, r))
-			return false;
-
-		int direction = (color == 'w') ? 1 : -1;
-
-		if(r == row + direction) {
-			if(c == column + 1 || c == column - 1) {
-				return true;
-			}
-		}
-
-		return false;
-	}
 	@Override
 	
 	/**
@@ -124,8 +106,7 @@ public class Pawn extends Piece {
 				if(b.pieceAt(newc,newr) instanceof Pawn) {
 					if(b.pieceAt(newc,newr).equals(b.en_passant)) {
 
-						@SuppressWarnings("unused")
-						Piece pas = b.board[newc][row].removePiece();
+						b.removePiece(newc, row);
 						hasmoved = true;
 						b.en_passant = null;
 						return true;
@@ -177,47 +158,6 @@ public class Pawn extends Piece {
 		return false;
 	}
 
-	@Override
-	/**
-	 * getAllMoves for pawn
-	 */
-	public ArrayList<Square> getAllMoves(Board b) {
-		ArrayList<Square> moves = new ArrayList<Square>();
-
-		int dir = (color == 'w') ? 1 : -1;
-
-		//check diagonals
-		if(b.onBoard(column - 1, row + dir) && b.filled(column - 1, row + dir)) {
-			moves.add(new Square(column - 1, row + dir));
-		}
-		if(b.onBoard(column + 1, row + dir) &&b.getTileAt(column + 1, row + dir).filled) {
-			moves.add(new Square(column + 1, row + dir));
-		}
-		
-		//check moving up
-		if(b.onBoard(column, row + dir)) {
-			if(!b.filled(column, row + dir)) {
-						
-				moves.add(new Square(column, row + dir));
-						
-				if(!hasmoved)
-					if(b.onBoard(column, row + 2*dir))
-						if(!b.filled(column, row + 2*dir))
-							moves.add(new Square(column, row + 2*dir));
-			}
-		}
-		
-		//check en passant
-		if(b.en_passant != null && b.en_passant.color != color && b.en_passant.row == row) {
-			if(column + 1 == b.en_passant.column)
-				moves.add(new Square(column + 1, row + dir));
-					
-			if(column - 1 == b.en_passant.column)
-				moves.add(new Square(column - 1, row + dir));
-		}
-		return moves;
-	}
-
 	public int getRow() {
 		return row;
 	}
@@ -237,5 +177,8 @@ public class Pawn extends Piece {
 	public void setColumn(int c) {
 		column = c;
 	}
-
+	@Override
+	public int getType() {
+		return PAWN;
+	}
 }
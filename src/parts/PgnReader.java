@@ -0,0 +1,392 @@
+package parts;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Reads games out of a PGN file and replays every move on a {@link Board}.
+ *
+ * The file is memory mapped a window at a time and parsed straight from the mapped bytes, one token at a time, so
+ * memory use stays the same however big the file is. One board and one move list are reused for every game.
+ * Comments, variations and annotation glyphs are skipped, and a "FEN" tag sets the starting position.
+ *
+ * readParallel splits the file at game boundaries and gives each piece to its own thread.
+ */
+public class PgnReader {
+
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	//how much of the file is mapped at once
+	private static final long WINDOW = 1L << 28;
+
+	/**
+	 * Gets each game once it has been replayed. board holds the final position (or the position where a bad move
+	 * was found), moves[0..plies) the moves that were played, and error is null unless the game didn't replay.
+	 * offset is where the game starts in the file, in bytes, which is the same whichever thread reads it.
+	 * Nothing passed in may be kept after the call returns, it is all reused for the next game.
+	 */
+	public interface Handler {
+		void game(Board board, int[] moves, int plies, CharSequence result, String error, long offset);
+	}
+
+	private final FileChannel channel;
+	private final long end;
+	private long pos;
+
+	private MappedByteBuffer window;
+	private long windowStart = 0, windowEnd = 0;
+
+	private final Board board = Board.blankBoard();
+	private int[] moves = new int[512];
+	private int plies;
+	private String error;
+
+	private final StringBuilder token = new StringBuilder(64);
+	private final StringBuilder tagName = new StringBuilder(16);
+	private final StringBuilder fen = new StringBuilder(96);
+	private final StringBuilder result = new StringBuilder(8);
+
+	/**
+	 *
+	 * @param channel
+	 * @param start
+	 * @param end
+	 *
+	 * Reads the games between two byte offsets, start has to be at the beginning of a game
+	 */
+	public PgnReader(FileChannel channel, long start, long end) {
+		this.channel = channel;
+		this.pos = start;
+		this.end = end;
+	}
+
+	//reads the next byte, or returns -1 past the end
+	private int next() throws IOException {
+		if(pos >= end)
+			return -1;
+
+		if(pos < windowStart || pos >= windowEnd) {
+			windowStart = pos;
+			windowEnd = Math.min(channel.size(), pos + WINDOW);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+		}
+
+		return window.get((int)(pos++ - windowStart)) & 0xFF;
+	}
+
+	private int peek() throws IOException {
+		int c = next();
+		if(c >= 0)
+			pos--;
+		return c;
+	}
+
+	/**
+	 *
+	 * @param handler
+	 * @return Returns the number of games read
+	 */
+	public long readAll(Handler handler) throws IOException {
+		long games = 0;
+
+		while(readGame(handler))
+			games++;
+
+		return games;
+	}
+
+	/**
+	 *
+	 * @param handler
+	 * @return Returns false once there are no games left
+	 */
+	public boolean readGame(Handler handler) throws IOException {
+
+		fen.setLength(0);
+		result.setLength(0);
+		plies = 0;
+		error = null;
+
+		int c;
+		boolean started = false;
+
+		skipWhitespace();
+		long start = pos;
+
+		//1 - tag pairs
+		while(true) {
+			c = skipWhitespace();
+
+			if(c != '[')
+				break;
+
+			readTag();
+			started = true;
+		}
+
+		if(c < 0 && !started)
+			return false;
+
+		try {
+			board.loadFen(fen.length() > 0 ? fen : START_FEN);
+		} catch(IllegalArgumentException e) {
+			//the moves are still read past so the next game starts in the right place
+			error = e.getMessage();
+		}
+
+		//2 - move text, up to the result or the next game's tags
+		while(true) {
+			c = skipWhitespace();
+
+			if(c < 0 || c == '[')
+				break;
+
+			if(c == '{') {
+				skipPast('}');
+				continue;
+			}
+			if(c == ';') {
+				skipPast('\n');
+				continue;
+			}
+			if(c == '(') {
+				skipVariation();
+				continue;
+			}
+
+			readToken();
+
+			if(isResult(token)) {
+				result.setLength(0);
+				result.append(token);
+				break;
+			}
+
+			playToken();
+		}
+
+		handler.game(board, moves, plies, result, error, start);
+		return true;
+	}
+
+	//skips whitespace and returns the next character without reading it
+	private int skipWhitespace() throws IOException {
+		int c;
+
+		while((c = peek()) >= 0 && c <= ' ')
+			pos++;
+
+		return c;
+	}
+
+	private void skipPast(int stop) throws IOException {
+		int c;
+		do {
+			c = next();
+		} while(c >= 0 && c != stop);
+	}
+
+	private void skipVariation() throws IOException {
+		int depth = 0, c;
+
+		while((c = next()) >= 0) {
+			if(c == '(')
+				depth++;
+			else if(c == ')' && --depth == 0)
+				return;
+			else if(c == '{')
+				skipPast('}');
+		}
+	}
+
+	//reads [Name "Value"], only keeping what the replay needs
+	private void readTag() throws IOException {
+		next();
+		tagName.setLength(0);
+
+		int c;
+		while((c = next()) >= 0 && c > ' ' && c != '"')
+			tagName.append((char)c);
+
+		while(c >= 0 && c != '"' && c != ']')
+			c = next();
+
+		StringBuilder value = null;
+		if(equals(tagName, "FEN"))
+			value = fen;
+		else if(equals(tagName, "Result"))
+			value = result;
+
+		if(c == '"') {
+			while((c = next()) >= 0 && c != '"') {
+				if(c == '\\')
+					c = next();
+				if(value != null)
+					value.append((char)c);
+			}
+		}
+
+		skipPast(']');
+	}
+
+	private void readToken() throws IOException {
+		token.setLength(0);
+		int c;
+
+		while((c = peek()) > ' ' && c != '{' && c != '(' && c != ')' && c != ';' && c != '[') {
+			token.append((char)c);
+			pos++;
+		}
+
+		//a stray closing bracket is taken as its own one character token
+		if(token.length() == 0 && c >= 0)
+			token.append((char)next());
+	}
+
+	private void playToken() {
+
+		if(error != null)
+			return;
+
+		//move numbers like "12." or "12...", possibly stuck to the move
+		int i = 0;
+		while(i < token.length() && (Character.isDigit(token.charAt(i)) || token.charAt(i) == '.'))
+			i++;
+
+		if(i == token.length() || token.charAt(0) == '$' || equals(token, "e.p."))
+			return;
+
+		if(i > 0)
+			token.delete(0, i);
+
+		int move = San.parse(board, token);
+
+		if(move == Move.NONE) {
+			error = "Illegal or ambiguous move " + token + " at ply " + (plies + 1);
+			return;
+		}
+
+		if(plies == moves.length)
+			moves = Arrays.copyOf(moves, plies * 2);
+
+		moves[plies++] = move;
+		board.makeMove(move);
+	}
+
+	private static boolean isResult(CharSequence s) {
+		return equals(s, "1-0") || equals(s, "0-1") || equals(s, "1/2-1/2") || equals(s, "*");
+	}
+
+	private static boolean equals(CharSequence a, String b) {
+		if(a.length() != b.length())
+			return false;
+
+		for(int i = 0; i < b.length(); i++)
+			if(a.charAt(i) != b.charAt(i))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @param handler
+	 * @return Returns the number of games read from the whole file on this thread
+	 */
+	public static long read(Path file, Handler handler) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new PgnReader(channel, 0, channel.size()).readAll(handler);
+		}
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @param threads
+	 * @param handlers
+	 * @return Returns the number of games read
+	 *
+	 * Splits the file into one piece per thread, each starting at a game boundary, and reads them all at once.
+	 * handlers is asked for one handler per piece, so each thread has its own and they don't need to be thread safe.
+	 */
+	public static long readParallel(Path file, int threads, IntFunction<Handler> handlers) throws IOException {
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			long size = channel.size();
+			long[] bounds = new long[threads + 1];
+			bounds[threads] = size;
+
+			for(int i = 1; i < threads; i++)
+				bounds[i] = Math.max(bounds[i - 1], nextGame(channel, size * i / threads, size));
+
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<Long>> parts = new ArrayList<Future<Long>>();
+
+			for(int i = 0; i < threads; i++) {
+				PgnReader reader = new PgnReader(channel, bounds[i], bounds[i + 1]);
+				Handler handler = handlers.apply(i);
+				parts.add(pool.submit(() -> reader.readAll(handler)));
+			}
+
+			long games = 0;
+			try {
+				for(Future<Long> f: parts)
+					games += f.get();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch(ExecutionException e) {
+				throw new IOException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+
+			return games;
+		}
+	}
+
+	//finds the first game that starts at or after from: a '[' at the start of a line, after a line that isn't a tag
+	private static long nextGame(FileChannel channel, long from, long size) throws IOException {
+
+		PgnReader r = new PgnReader(channel, from, size);
+
+		//get to the start of a line
+		if(from > 0) {
+			int c;
+			while((c = r.next()) >= 0 && c != '\n');
+		}
+
+		boolean lastWasTag = true;
+		while(r.pos < size) {
+
+			long line = r.pos;
+			int c = r.peek();
+
+			if(c == '[' && !lastWasTag)
+				return line;
+
+			if(c != '\n' && c != '\r')
+				lastWasTag = (c == '[');
+
+			while((c = r.next()) >= 0 && c != '\n');
+		}
+
+		return size;
+	}
+}
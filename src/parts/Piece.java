@@ -15,6 +15,20 @@ public abstract class Piece {
 	protected int column;
 
 	protected char color;
+
+	//piece types, used to index the bitboards kept by Board
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	/**
+	 * 
+	 * @return Returns the type of this piece, one of PAWN through KING
+	 */
+	public abstract int getType();
 	
 	/**
 	 * 
@@ -22,9 +36,16 @@ public abstract class Piece {
 	 * @param r
 	 * @param board
 	 * @return Returns true if this piece threatens a space with column c and row r on a board
+	 * 
+	 * Looks up this piece's attacks from the tables in Bitboards, against the board's current occupancy.
 	 */
 	public boolean threatens(int c, int r, Board board) {
-		return false;
+		
+		if(!board.onBoard(c, r))
+			return false;
+		
+		long attacks = Bitboards.attacks(getType(), Bitboards.side(getColor()), Bitboards.square(getColumn(), getRow()), board.occupied);
+		return (attacks & Bitboards.bit(Bitboards.square(c, r))) != 0;
 	}
 	
 	/**
@@ -155,22 +176,28 @@ public abstract class Piece {
 
 	/**
 	 * 
-	 * @return Returns a list of all valid squares on a piece
+	 * @return Returns a list of all the squares this piece can move to the way it moves, even ones that leave its own
+	 * king in check, though the king itself never steps onto an attacked square
+	 * 
+	 * Reads them off the move generator for this piece's square, so a promotion only shows up once.
 	 */
 	public ArrayList<Square> getAllMoves(Board b) {
-		// TODO Auto-generated method stub
 		ArrayList<Square> moves = new ArrayList<Square>();
-		Pawn o_pas = b.en_passant;
+		int[] buffer = b.move_buffer;
+		
+		int n = MoveGenerator.pseudoLegalFrom(b, Bitboards.square(getColumn(), getRow()), buffer, 0);
+		int last = -1;
 
-		for(int col = 0; col < 8; col++) {
+		for(int i = 0; i < n; i++) {
 
-			for(int ro = 0; ro < 8; ro++) {
+			int to = Move.to(buffer[i]);
+			int c = Bitboards.column(to), r = Bitboards.row(to);
 
-				if(moveTo(col, ro, b)) {
-					b.en_passant = o_pas;
-					moves.add(b.board[col][ro]);
-				}
-			}
+			if(to == last || (getType() == KING && b.threatened(c, r, getColor())))
+				continue;
+			
+			last = to;
+			moves.add(b.board[c][r]);
 		}
 
 		return moves;
@@ -0,0 +1,132 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Material and piece-square values, which {@link Board} adds up as pieces go on and off squares so the material
+ * and placement part of the evaluation is always ready without looking at the board.
+ *
+ * Every entry is the piece's value plus a bonus for the square it stands on, with a middlegame (MG) and an endgame
+ * (EG) version that the evaluation blends by how much material is left (the phase). Black's entries are white's
+ * mirrored top to bottom and negated, so the running totals are always from white's point of view.
+ */
+public final class PieceSquare {
+
+	//material value of each piece type, the king isn't counted
+	public static final int[] VALUE = {100, 320, 330, 500, 900, 0};
+
+	//how much each piece type counts towards the game phase, all of them together at the start make TOTAL_PHASE
+	public static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+	public static final int TOTAL_PHASE = 24;
+
+	//indexed by (side * 6 + type) * 64 + square, like the Zobrist keys
+	public static final int[] MG = new int[12 * 64];
+	public static final int[] EG = new int[12 * 64];
+
+	/* The tables below are written the way the board is printed, a8 in the top left and h1 in the bottom right,
+	 * from white's side. */
+
+	private static final int[] PAWN_MG = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 10,  10,  20,  30,  30,  20,  10,  10,
+		  5,   5,  10,  25,  25,  10,   5,   5,
+		  0,   0,   0,  20,  20,   0,   0,   0,
+		  5,  -5, -10,   0,   0, -10,  -5,   5,
+		  5,  10,  10, -20, -20,  10,  10,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	private static final int[] PAWN_EG = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 80,  80,  80,  80,  80,  80,  80,  80,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 30,  30,  30,  30,  30,  30,  30,  30,
+		 15,  15,  15,  15,  15,  15,  15,  15,
+		  5,   5,   5,   5,   5,   5,   5,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	private static final int[] KNIGHT = {
+		-50, -40, -30, -30, -30, -30, -40, -50,
+		-40, -20,   0,   0,   0,   0, -20, -40,
+		-30,   0,  10,  15,  15,  10,   0, -30,
+		-30,   5,  15,  20,  20,  15,   5, -30,
+		-30,   0,  15,  20,  20,  15,   0, -30,
+		-30,   5,  10,  15,  15,  10,   5, -30,
+		-40, -20,   0,   5,   5,   0, -20, -40,
+		-50, -40, -30, -30, -30, -30, -40, -50
+	};
+	private static final int[] BISHOP = {
+		-20, -10, -10, -10, -10, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,  10,  10,   5,   0, -10,
+		-10,   5,   5,  10,  10,   5,   5, -10,
+		-10,   0,  10,  10,  10,  10,   0, -10,
+		-10,  10,  10,  10,  10,  10,  10, -10,
+		-10,   5,   0,   0,   0,   0,   5, -10,
+		-20, -10, -10, -10, -10, -10, -10, -20
+	};
+	private static final int[] ROOK = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  5,  10,  10,  10,  10,  10,  10,   5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		  0,   0,   0,   5,   5,   0,   0,   0
+	};
+	private static final int[] QUEEN = {
+		-20, -10, -10,  -5,  -5, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,   5,   5,   5,   0, -10,
+		 -5,   0,   5,   5,   5,   5,   0,  -5,
+		  0,   0,   5,   5,   5,   5,   0,  -5,
+		-10,   5,   5,   5,   5,   5,   0, -10,
+		-10,   0,   5,   0,   0,   0,   0, -10,
+		-20, -10, -10,  -5,  -5, -10, -10, -20
+	};
+	private static final int[] KING_MG = {
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-20, -30, -30, -40, -40, -30, -30, -20,
+		-10, -20, -20, -20, -20, -20, -20, -10,
+		 20,  20,   0,   0,   0,   0,  20,  20,
+		 20,  30,  10,   0,   0,  10,  30,  20
+	};
+	private static final int[] KING_EG = {
+		-50, -40, -30, -20, -20, -30, -40, -50,
+		-30, -20, -10,   0,   0, -10, -20, -30,
+		-30, -10,  20,  30,  30,  20, -10, -30,
+		-30, -10,  30,  40,  40,  30, -10, -30,
+		-30, -10,  30,  40,  40,  30, -10, -30,
+		-30, -10,  20,  30,  30,  20, -10, -30,
+		-30, -30,   0,   0,   0,   0, -30, -30,
+		-50, -30, -30, -30, -30, -30, -30, -50
+	};
+
+	static {
+		int[][] mg = {PAWN_MG, KNIGHT, BISHOP, ROOK, QUEEN, KING_MG};
+		int[][] eg = {PAWN_EG, KNIGHT, BISHOP, ROOK, QUEEN, KING_EG};
+
+		for(int type = Piece.PAWN; type <= Piece.KING; type++)
+			for(int sq = 0; sq < 64; sq++) {
+				int c = Bitboards.column(sq), r = Bitboards.row(sq);
+
+				//white reads the table upside down since a8 is at the top, black reads it as written
+				int white = (7 - r) * 8 + c, black = r * 8 + c;
+
+				MG[(type << 6) | sq] = VALUE[type] + mg[type][white];
+				EG[(type << 6) | sq] = VALUE[type] + eg[type][white];
+				MG[((6 + type) << 6) | sq] = -(VALUE[type] + mg[type][black]);
+				EG[((6 + type) << 6) | sq] = -(VALUE[type] + eg[type][black]);
+			}
+	}
+
+	private PieceSquare() {
+	}
+}
@@ -0,0 +1,168 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * An immutable snapshot of a position, small and cheap enough to keep thousands of: game histories, positions handed
+ * to other threads, cache entries.
+ *
+ * Everything fits in five longs. occupied has a bit for every square with a piece on it, and low and high hold the
+ * pieces themselves, four bits each (side * 6 + type) in the order of their squares, so the first sixteen pieces are
+ * in low and the rest in high. state packs the side to move, castling rights, en passant square and both clocks, and
+ * key is the board's Zobrist key so a snapshot can be hashed or looked up without unpacking it.
+ *
+ * Use Board.snapshot to take one and Board.load or toBoard to get a board back. Move history isn't kept, a board
+ * loaded from a snapshot starts with nothing to take back.
+ */
+public final class Position {
+
+	//a board never has more pieces than this
+	public static final int MAX_PIECES = 32;
+
+	//layout of state
+	private static final int TURN_SHIFT = 0;
+	private static final int CASTLING_SHIFT = 1;
+	private static final int EP_SHIFT = 5;
+	private static final int HALFMOVE_SHIFT = 12;
+	private static final int FULLMOVE_SHIFT = 28;
+
+	//the parts of state equals looks at, the clocks don't change what the position is
+	private static final long POSITION_STATE = (1L << HALFMOVE_SHIFT) - 1;
+
+	public final long occupied;
+	public final long low, high;
+	public final long state;
+	public final long key;
+
+	private Position(long occupied, long low, long high, long state, long key) {
+		this.occupied = occupied;
+		this.low = low;
+		this.high = high;
+		this.state = state;
+		this.key = key;
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @return Returns a snapshot of the position on b
+	 *
+	 * Only reads the board's bitboards, mailbox and state, never its pieces or squares.
+	 */
+	public static Position of(Board b) {
+
+		long occupied = b.occupied;
+		if(Long.bitCount(occupied) > MAX_PIECES)
+			throw new IllegalArgumentException("more than " + MAX_PIECES + " pieces on the board");
+
+		long low = 0L, high = 0L;
+		int i = 0;
+
+		for(long bits = occupied; bits != 0; bits &= bits - 1, i++) {
+			long code = b.mailbox[Long.numberOfTrailingZeros(bits)];
+
+			if(i < 16)
+				low |= code << (4 * i);
+			else
+				high |= code << (4 * (i - 16));
+		}
+
+		long state = ((long)Bitboards.side(b.turn) << TURN_SHIFT)
+				| ((long)b.castling << CASTLING_SHIFT)
+				| ((long)(b.ep_square + 1) << EP_SHIFT)
+				| ((long)(b.halfmove_clock & 0xFFFF) << HALFMOVE_SHIFT)
+				| ((long)b.fullmove_number << FULLMOVE_SHIFT);
+
+		return new Position(occupied, low, high, state, b.key);
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @return Returns the code (side * 6 + type) of the i-th piece, counting up from a1
+	 */
+	public int piece(int i) {
+		return (int)(((i < 16) ? low >>> (4 * i) : high >>> (4 * (i - 16))) & 15);
+	}
+
+	/**
+	 *
+	 * @param sq
+	 * @return Returns what is on the square as side * 6 + type, or Board.EMPTY
+	 */
+	public int pieceAt(int sq) {
+
+		long bit = Bitboards.bit(sq);
+		if((occupied & bit) == 0)
+			return Board.EMPTY;
+
+		return piece(Long.bitCount(occupied & (bit - 1)));
+	}
+
+	public char turn() {
+		return Bitboards.color((int)(state >>> TURN_SHIFT) & 1);
+	}
+
+	public int castling() {
+		return (int)(state >>> CASTLING_SHIFT) & 15;
+	}
+
+	public int epSquare() {
+		return ((int)(state >>> EP_SHIFT) & 127) - 1;
+	}
+
+	public int halfmoveClock() {
+		return (int)(state >>> HALFMOVE_SHIFT) & 0xFFFF;
+	}
+
+	public int fullmoveNumber() {
+		return (int)(state >>> FULLMOVE_SHIFT);
+	}
+
+	public int count() {
+		return Long.bitCount(occupied);
+	}
+
+	/**
+	 *
+	 * @return Returns a new board set up from this snapshot
+	 *
+	 * Building a board means building its squares too, to reuse one instead call Board.load.
+	 */
+	public Board toBoard() {
+		Board b = Board.blankBoard();
+		b.load(this);
+		return b;
+	}
+
+	public String toFen() {
+		return toBoard().toFen();
+	}
+
+	/**
+	 *
+	 * Two snapshots are equal if they have the same pieces on the same squares, side to move, castling rights and en
+	 * passant square. The clocks are left out, so positions repeated later in a game compare equal.
+	 */
+	public boolean equals(Object o) {
+
+		if(this == o)
+			return true;
+		if(!(o instanceof Position))
+			return false;
+
+		Position p = (Position)o;
+		return key == p.key && occupied == p.occupied && low == p.low && high == p.high
+				&& ((state ^ p.state) & POSITION_STATE) == 0;
+	}
+
+	public int hashCode() {
+		return (int)(key ^ (key >>> 32));
+	}
+
+	public String toString() {
+		return toFen();
+	}
+}
@@ -55,62 +55,6 @@ public class Rook extends Piece {
 	    return this.row == o.row && this.column == o.column;
 	}
 
-	@Override
-	/**
-	 * @return 
-	 * 
-	 * Threatens method for rook
-	 */
-	public boolean threatens(int c, int r, Board b) {
-		
-		if(c != column && r != row) {
-			return false;
-		}
-
-		if(c == column && r == row) {
-			return false;
-		}
-		
-		if(c == column) {
-			
-			int direction = (r > row) ? 1 : -1;
-			
-			
-			for(int x = row + direction; x != r; x += direction) {
-
-				
-				if(b.onBoard(c,x)) {
-					if(b.filled(c,x)) {
-						return false;
-					}
-				} else {
-					break;
-				}
-			}
-
-			return true;
-		}
-
-		if(r == row) {
-			int direction = (c > column) ? 1 : -1;
-			for(int x = column + direction; x != c; x+= direction) {
-
-				if(b.onBoard(c,x)) {
-					if(b.board[c][x].filled) {
-						return false;
-					}
-				} else {
-					break;
-				}
-
-			}
-
-			return true;
-		}
-
-		return false;
-	}
-
 	/**
 	 * Moveto method for rook
 	 */
@@ -193,4 +137,8 @@ public class Rook extends Piece {
 		// TODO Auto-generated method stub
 		column = c;
 	}
+	@Override
+	public int getType() {
+		return ROOK;
+	}
 }
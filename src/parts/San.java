@@ -0,0 +1,248 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Standard Algebraic Notation, the "Nbd7" and "exd5" style of writing moves used in PGN files.
+ *
+ * Both directions work backwards from the destination square: the pieces that could have moved there are the ones
+ * the same kind of piece standing on that square would attack, so only those few are looked at instead of every move
+ * on the board. Whether one of them is pinned is found with a single attackers lookup, nothing is made and unmade.
+ */
+public final class San {
+
+	private static final String LETTERS = "PNBRQK";
+
+	private San() {
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param san
+	 * @return Returns the legal move on the board that san describes, or Move.NONE if there isn't exactly one
+	 *
+	 * Check marks and annotations like "+", "#", "!" and "?" on the end are ignored, and so is an "e.p." after an
+	 * en passant capture. "0-0" is taken the same as "O-O".
+	 */
+	public static int parse(Board b, CharSequence san) {
+
+		int end = trim(san);
+
+		int side = Bitboards.side(b.turn), o = side * 6;
+		int home = (side == Bitboards.WHITE) ? 4 : 60;
+
+		//castling
+		if(end >= 3 && (san.charAt(0) == 'O' || san.charAt(0) == '0')) {
+			int to = (end >= 5) ? home - 2 : home + 2;
+			if(!b.canCastle(side, to))
+				return Move.NONE;
+
+			//canCastle doesn't look at the square the king lands on
+			int move = Move.encode(home, to, 0, Move.CASTLE);
+			return b.isLegal(move) ? move : Move.NONE;
+		}
+
+		//promotion on the end, with or without the '='
+		int promotion = 0;
+		if(end >= 3) {
+			int type = LETTERS.indexOf(san.charAt(end - 1));
+
+			if(type > Piece.PAWN && type < Piece.KING) {
+				promotion = type;
+				end -= (san.charAt(end - 2) == '=') ? 2 : 1;
+			}
+		}
+
+		if(end < 2)
+			return Move.NONE;
+
+		//destination square
+		int tc = san.charAt(end - 2) - 'a', tr = san.charAt(end - 1) - '1';
+		if(tc < 0 || tc > 7 || tr < 0 || tr > 7)
+			return Move.NONE;
+
+		int to = Bitboards.square(tc, tr);
+		long target = Bitboards.bit(to);
+
+		if((b.occupancy[side] & target) != 0)
+			return Move.NONE;
+
+		//moving piece, pawns have no letter
+		int type = LETTERS.indexOf(san.charAt(0));
+		int i = 1;
+		if(type <= Piece.PAWN) {
+			type = Piece.PAWN;
+			i = (san.charAt(0) == 'P') ? 1 : 0;
+		}
+
+		//whatever is left between the piece and the square narrows down where it came from
+		long from_mask = -1L;
+		boolean capture = false;
+		for(; i < end - 2; i++) {
+			char ch = san.charAt(i);
+
+			if(ch >= 'a' && ch <= 'h')
+				from_mask &= Bitboards.FILE_A << (ch - 'a');
+			else if(ch >= '1' && ch <= '8')
+				from_mask &= Bitboards.RANK_1 << (8 * (ch - '1'));
+			else if(ch == 'x' || ch == ':')
+				capture = true;
+			else if(ch != '-')
+				return Move.NONE;
+		}
+
+		int lastrow = (side == Bitboards.WHITE) ? 7 : 0;
+		boolean promoting = type == Piece.PAWN && tr == lastrow;
+		if(promoting != (promotion != 0))
+			return Move.NONE;
+
+		int flags = ((b.occupancy[side ^ 1] & target) != 0) ? Move.CAPTURE : 0;
+		long candidates;
+
+		if(type != Piece.PAWN)
+			candidates = Bitboards.attacks(type, side, to, b.occupied) & b.pieces[o + type];
+
+		//a pawn capture names the file it came from, anything else is a push
+		else if(capture || from_mask != -1L) {
+			if(to == b.ep_square && flags == 0)
+				flags = Move.EN_PASSANT | Move.CAPTURE;
+			else if(flags == 0)
+				return Move.NONE;
+
+			candidates = Bitboards.pawnAttacks(side ^ 1, to) & b.pieces[o + Piece.PAWN];
+		}
+
+		else {
+			if(flags != 0)
+				return Move.NONE;
+
+			int dir = (side == Bitboards.WHITE) ? 8 : -8;
+			candidates = b.pieces[o + Piece.PAWN] & Bitboards.bit(to - dir);
+
+			if(candidates == 0 && tr == ((side == Bitboards.WHITE) ? 3 : 4) && (b.occupied & Bitboards.bit(to - dir)) == 0) {
+				candidates = b.pieces[o + Piece.PAWN] & Bitboards.bit(to - 2 * dir);
+				flags = Move.DOUBLE_PUSH;
+			}
+		}
+
+		int found = Move.NONE;
+		for(candidates &= from_mask; candidates != 0; candidates &= candidates - 1) {
+
+			int move = Move.encode(Long.numberOfTrailingZeros(candidates), to, promotion, flags);
+
+			if(!MoveGenerator.leavesKingSafe(b, move, side))
+				continue;
+
+			//two moves fit, the notation is ambiguous
+			if(found != Move.NONE)
+				return Move.NONE;
+
+			found = move;
+		}
+
+		return found;
+	}
+
+	//where the move itself ends, without check marks, annotations or "e.p."
+	private static int trim(CharSequence san) {
+		int end = san.length();
+
+		while(true) {
+			while(end > 0 && (san.charAt(end - 1) <= ' ' || "+#!?".indexOf(san.charAt(end - 1)) >= 0))
+				end--;
+
+			if(end >= 4 && san.charAt(end - 4) == 'e' && san.charAt(end - 3) == '.' && san.charAt(end - 2) == 'p' && san.charAt(end - 1) == '.')
+				end -= 4;
+			else
+				return end;
+		}
+	}
+
+	/**
+	 *
+	 * @param b
+	 * @param move
+	 * @return Returns the move in SAN, with "+" or "#" on the end if it gives check or mate
+	 *
+	 * The move has to be legal on b. Only the origin the move needs is written, a file if that's enough, then a rank,
+	 * then both.
+	 */
+	public static String toSan(Board b, int move) {
+		return append(new StringBuilder(8), b, move).toString();
+	}
+
+	/**
+	 *
+	 * @param sb
+	 * @param b
+	 * @param move
+	 * @return Returns sb, with the move in SAN added on the end
+	 */
+	public static StringBuilder append(StringBuilder sb, Board b, int move) {
+
+		int from = Move.from(move), to = Move.to(move);
+		int side = b.mailbox[from] / 6, type = b.mailbox[from] % 6;
+
+		if(Move.isCastle(move))
+			sb.append(to > from ? "O-O" : "O-O-O");
+
+		else if(type == Piece.PAWN) {
+			if(Move.isCapture(move))
+				sb.append((char)('a' + Bitboards.column(from))).append('x');
+
+			sb.append(Move.squareName(to));
+
+			if(Move.promotion(move) != 0)
+				sb.append('=').append(LETTERS.charAt(Move.promotion(move)));
+		}
+
+		else {
+			sb.append(LETTERS.charAt(type));
+
+			//the king is never ambiguous, anything else might have a twin that can also get there
+			if(type != Piece.KING) {
+
+				long others = Bitboards.attacks(type, side, to, b.occupied) & b.pieces[side * 6 + type] & ~Bitboards.bit(from);
+				long rivals = 0;
+
+				for(; others != 0; others &= others - 1) {
+					int sq = Long.numberOfTrailingZeros(others);
+
+					if(MoveGenerator.leavesKingSafe(b, Move.encode(sq, to, 0, move & Move.CAPTURE), side))
+						rivals |= Bitboards.bit(sq);
+				}
+
+				if(rivals != 0) {
+					long file = Bitboards.FILE_A << Bitboards.column(from);
+					long rank = Bitboards.RANK_1 << (8 * Bitboards.row(from));
+
+					if((rivals & file) == 0)
+						sb.append((char)('a' + Bitboards.column(from)));
+					else if((rivals & rank) == 0)
+						sb.append((char)('1' + Bitboards.row(from)));
+					else
+						sb.append(Move.squareName(from));
+				}
+			}
+
+			if(Move.isCapture(move))
+				sb.append('x');
+
+			sb.append(Move.squareName(to));
+		}
+
+		//check or mate
+		b.makeMove(move);
+
+		int enemy = side ^ 1;
+		if(b.inCheck(Bitboards.color(enemy)))
+			sb.append(MoveGenerator.hasLegalMove(b, enemy, b.move_buffer, 0) ? '+' : '#');
+
+		b.unmakeMove();
+
+		return sb;
+	}
+}
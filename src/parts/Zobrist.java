@@ -0,0 +1,62 @@
+package parts;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key of every piece on its square,
+ * the castling rights, the en passant file (only when a capture there is actually possible) and the side to move.
+ *
+ * Because XOR undoes itself, {@link Board} keeps its key up to date by XORing in whatever changes on each move
+ * instead of hashing the whole board again.
+ *
+ * The keys come from a fixed seed so a position hashes the same every run.
+ */
+public final class Zobrist {
+
+	//indexed by (side * 6 + type) * 64 + square
+	public static final long[] PIECES = new long[12 * 64];
+
+	//indexed by the castling rights bits in Board, so CASTLING[0] is 0
+	public static final long[] CASTLING = new long[16];
+
+	//indexed by column
+	public static final long[] EN_PASSANT = new long[8];
+
+	//XORed in when black is to move
+	public static final long SIDE;
+
+	private static long seed = 0x9E3779B97F4A7C15L;
+
+	static {
+		for(int i = 0; i < PIECES.length; i++)
+			PIECES[i] = next();
+
+		long[] rights = {next(), next(), next(), next()};
+		for(int i = 0; i < 16; i++)
+			for(int bit = 0; bit < 4; bit++)
+				if((i & (1 << bit)) != 0)
+					CASTLING[i] ^= rights[bit];
+
+		for(int i = 0; i < 8; i++)
+			EN_PASSANT[i] = next();
+
+		SIDE = next();
+	}
+
+	private Zobrist() {
+	}
+
+	//splitmix64
+	private static long next() {
+		long z = (seed += 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public static long piece(int code, int sq) {
+		return PIECES[(code << 6) | sq];
+	}
+}
@@ -0,0 +1,173 @@
+package server;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import parts.Bitboards;
+import parts.Board;
+import parts.GameStatus;
+import parts.Move;
+import parts.MoveGenerator;
+import parts.San;
+
+/**
+ *
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * One game hosted by a {@link GameServer}: a board, a queue of requests for it, and a thread of its own that works
+ * through the queue in order.
+ *
+ * Only the game's thread ever touches the board, so any number of connections can send it moves at once without
+ * locking. A game nobody has sent anything for in the server's idle time evicts itself and its thread ends.
+ */
+public class Game implements Runnable {
+
+	//what each GameStatus result is called in replies
+	private static final String[] STATUS = {"ongoing", "checkmate", "stalemate", "repetition", "fifty", "material"};
+
+	public final long id;
+
+	private final GameServer server;
+	private final Board board;
+	private final BlockingQueue<Request> queue = new LinkedBlockingQueue<Request>();
+	private boolean closed = false;
+	private int status = GameStatus.ONGOING;
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+	/* A command waiting for the game's thread, and where its reply goes */
+	private static class Request {
+		final String[] args;
+		final CompletableFuture<String> reply = new CompletableFuture<String>();
+
+		Request(String[] args) {
+			this.args = args;
+		}
+	}
+
+	Game(long id, GameServer server, Board board) {
+		this.id = id;
+		this.server = server;
+		this.board = board;
+		this.status = server.referee.status(board);
+	}
+
+	/**
+	 *
+	 * @param args
+	 * @return Returns the reply to come, or null if the game has already been closed or evicted
+	 */
+	public CompletableFuture<String> submit(String[] args) {
+		Request r = new Request(args);
+
+		synchronized(this) {
+			if(closed)
+				return null;
+			queue.add(r);
+		}
+
+		return r.reply;
+	}
+
+	public void run() {
+
+		while(true) {
+
+			Request r;
+			try {
+				r = queue.poll(server.idleMillis, TimeUnit.MILLISECONDS);
+			} catch(InterruptedException e) {
+				r = null;
+				closed = true;
+			}
+
+			//nothing came in, unless something slipped in just now this game is done
+			if(r == null) {
+				synchronized(this) {
+					if(queue.isEmpty())
+						closed = true;
+				}
+
+				if(closed) {
+					finish();
+					server.evicted(this);
+					return;
+				}
+				continue;
+			}
+
+			String reply;
+			try {
+				reply = handle(r.args);
+			} catch(RuntimeException e) {
+				reply = "error " + e;
+			}
+			r.reply.complete(reply);
+
+			if(closed) {
+				finish();
+				server.closed(this);
+				return;
+			}
+		}
+	}
+
+	//answers anything still queued once the game is closed, so nobody is left waiting
+	private void finish() {
+		for(Request left; (left = queue.poll()) != null; )
+			left.reply.complete("error no game " + id);
+	}
+
+	//runs one command on the game's own thread
+	private String handle(String[] args) {
+
+		switch(args[0]) {
+
+			case "move":
+				if(args.length < 3)
+					return "error usage: move <id> <move>";
+				if(status != GameStatus.ONGOING)
+					return "error game is over, " + STATUS[status];
+
+				//coordinates like e2e4, otherwise SAN like Nf3
+				int move = Move.parse(board, args[2]);
+				if(move == Move.NONE)
+					move = San.parse(board, args[2]);
+				if(move == Move.NONE)
+					return "error illegal move " + args[2];
+
+				String san = San.toSan(board, move);
+				board.makeMove(move);
+				status = server.referee.status(board);
+				server.moved();
+
+				return "ok " + san + " " + STATUS[status];
+
+			case "moves":
+				StringBuilder sb = new StringBuilder("ok");
+				int n = (status == GameStatus.ONGOING) ? MoveGenerator.legal(board, Bitboards.side(board.turn), moves, 0) : 0;
+
+				for(int i = 0; i < n; i++)
+					sb.append(' ').append(Move.toString(moves[i]));
+
+				return sb.toString();
+
+			case "fen":
+				return "ok " + board.toFen();
+
+			case "status":
+				return "ok " + STATUS[status] + " " + (board.turn == 'w' ? "white" : "black");
+
+			case "close":
+				synchronized(this) {
+					closed = true;
+				}
+				return "ok";
+
+			default:
+				return "error unknown command " + args[0];
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/**
+ * @author Anand Raju
+ * @author Sammy Berger
+ *
+ * <h1>Game server</h1>
+ *
+ * Hosts any number of games at once behind a line based protocol on a local socket. Every connection and every game
+ * gets a thread of its own, virtual threads when the JVM has them (Java 21 and up) and ordinary ones otherwise.
+ *
+ * Each request is one line, and each gets one line back starting with "ok" or "error":
+ *
+ * new [fen]           - starts a game, from the starting position or the FEN given. Replies "ok [id]"
+ * move [id] [move]    - plays a move, in coordinates (e2e4, e7e8q) or SAN (Nf3). Replies "ok [san] [status]"
+ * moves [id]          - lists the legal moves in coordinates
+ * fen [id]            - the position in FEN
+ * status [id]         - ongoing, checkmate, stalemate, repetition, fifty or material, then the side to move
+ * close [id]          - ends a game
+ * stats               - games hosted now, created, evicted and moves played so far, and the kind of threads
+ * quit                - closes the connection
+ *
+ * Usage: java server.GameServer [port] [idle seconds]
+ *
+ * */
+
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import parts.Board;
+import parts.GameStatus;
+import parts.PgnReader;
+
+public class GameServer {
+
+	public static final int DEFAULT_PORT = 7070;
+
+	//how long a game can go without a request before it is thrown away
+	final long idleMillis;
+
+	//mate and draw detection, shared by every game since its cache is safe across threads
+	final GameStatus referee = new GameStatus(1 << 20);
+
+	private final ConcurrentHashMap<Long, Game> games = new ConcurrentHashMap<Long, Game>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicLong created = new AtomicLong(), evicted = new AtomicLong(), moves = new AtomicLong();
+
+	private final ExecutorService threads;
+	private final boolean virtual;
+	private ServerSocket socket;
+
+	public GameServer(long idleMillis) {
+		this.idleMillis = idleMillis;
+
+		ExecutorService pool = virtualThreads();
+		this.virtual = pool != null;
+		this.threads = virtual ? pool : Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "game");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	//Executors.newVirtualThreadPerTaskExecutor() if this JVM has it, looked up by name so this still builds on Java 17
+	private static ExecutorService virtualThreads() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)m.invoke(null);
+		} catch(ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @param port
+	 * @return Returns the port the server is listening on, which is picked by the system if port is 0
+	 *
+	 * Starts accepting connections on the loopback address, on a thread of its own, and returns right away
+	 */
+	public int start(int port) throws IOException {
+
+		socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+
+		Thread acceptor = new Thread(() -> {
+			while(!socket.isClosed()) {
+				try {
+					Socket client = socket.accept();
+					threads.execute(() -> session(client));
+				} catch(IOException e) {
+					//the socket was closed by shutdown
+				}
+			}
+		}, "game-server");
+
+		acceptor.start();
+		return socket.getLocalPort();
+	}
+
+	//reads requests from one connection until it closes or says quit
+	private void session(Socket client) {
+
+		try(Socket s = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(s.getOutputStream(), false, StandardCharsets.US_ASCII)) {
+
+			String line;
+			while((line = in.readLine()) != null) {
+
+				line = line.trim();
+				if(line.isEmpty())
+					continue;
+				if(line.equals("quit"))
+					break;
+
+				out.println(execute(line));
+				out.flush();
+			}
+
+		} catch(IOException e) {
+			//the client went away
+		}
+	}
+
+	/**
+	 *
+	 * @param line
+	 * @return Returns the reply to one request line, see the protocol at the top
+	 *
+	 * Commands for a game are handed to the game's own thread, and this waits for its answer.
+	 */
+	public String execute(String line) {
+
+		String[] args = line.split("\\s+");
+
+		switch(args[0]) {
+
+			case "new":
+				try {
+					return "ok " + newGame(line.length() > 3 ? line.substring(4) : PgnReader.START_FEN).id;
+				} catch(IllegalArgumentException e) {
+					return "error " + e.getMessage();
+				}
+
+			case "stats":
+				return "ok games " + games.size() + " created " + created.get() + " evicted " + evicted.get()
+						+ " moves " + moves.get() + " threads " + (virtual ? "virtual" : "platform");
+
+			case "move": case "moves": case "fen": case "status": case "close":
+				break;
+
+			default:
+				return "error unknown command " + args[0];
+		}
+
+		if(args.length < 2)
+			return "error no game id";
+
+		Game game;
+		try {
+			game = games.get(Long.parseLong(args[1]));
+		} catch(NumberFormatException e) {
+			game = null;
+		}
+
+		CompletableFuture<String> reply = (game == null) ? null : game.submit(args);
+		if(reply == null)
+			return "error no game " + args[1];
+
+		return reply.join();
+	}
+
+	/**
+	 *
+	 * @param fen
+	 * @return Returns a new game, already running on its own thread
+	 */
+	public Game newGame(CharSequence fen) {
+
+		Game game = new Game(nextId.getAndIncrement(), this, Board.fromFen(fen));
+
+		games.put(game.id, game);
+		created.incrementAndGet();
+		threads.execute(game);
+
+		return game;
+	}
+
+	public Game game(long id) {
+		return games.get(id);
+	}
+
+	//games being hosted right now
+	public int games() {
+		return games.size();
+	}
+
+	public boolean usesVirtualThreads() {
+		return virtual;
+	}
+
+	//called by games on their own threads
+	void evicted(Game game) {
+		games.remove(game.id);
+		evicted.incrementAndGet();
+	}
+	void closed(Game game) {
+		games.remove(game.id);
+	}
+	void moved() {
+		moves.incrementAndGet();
+	}
+
+	//stops listening and ends every game
+	public void shutdown() {
+		try {
+			if(socket != null)
+				socket.close();
+		} catch(IOException e) {
+			//already closed
+		}
+
+		threads.shutdownNow();
+	}
+
+	public static void main(String args[]) throws IOException {
+
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		long idle = (args.length > 1) ? Long.parseLong(args[1]) : 600;
+
+		GameServer server = new GameServer(idle * 1000);
+		port = server.start(port);
+
+		System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port
+				+ " with " + (server.usesVirtualThreads() ? "virtual" : "platform") + " threads");
+	}
+}